@@ -0,0 +1,114 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import org.mousephenotype.dcc.entities.overviews.MetadataGroupToValues;
+import org.mousephenotype.dcc.qualitycontrol.persistence.PersistenceManager;
+
+/**
+ * Creates the application-wide caches when the web application starts.
+ *
+ * @author agent <agent@local>
+ */
+public class CacheListener implements ServletContextListener {
+
+    private long getLongParameter(ServletContext ctx, String name,
+            long defaultValue) {
+        String value = ctx.getInitParameter(name);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid value '" + value
+                        + "' for context parameter " + name);
+            }
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        ServletContext ctx = event.getServletContext();
+        if (ctx.getAttribute("SessionCache") == null) {
+            ctx.setAttribute("SessionCache", new SessionCache(
+                    getLongParameter(ctx, "sessionCacheTtl", 60000L),
+                    getLongParameter(ctx, "sessionCacheInvalidTtl", 5000L)));
+        }
+        if (ctx.getAttribute("ParameterCatalogue") == null) {
+            ctx.setAttribute("ParameterCatalogue", new ParameterCatalogue(
+                    getLongParameter(ctx, "parameterCatalogueTtl", 3600000L)));
+        }
+        if (ctx.getAttribute("LineLevelData") == null) {
+            ctx.setAttribute("LineLevelData", new LineLevelData(
+                    getLongParameter(ctx, "lineLevelDataTtl", 600000L)));
+        }
+        if (ctx.getAttribute("IssueSummary") == null) {
+            ctx.setAttribute("IssueSummary", new IssueSummary(
+                    getLongParameter(ctx, "issueSummaryTtl", 60000L)));
+        }
+        if (ctx.getAttribute("GeneStrainRollup") == null) {
+            ctx.setAttribute("GeneStrainRollup", new GeneStrainRollup(
+                    getLongParameter(ctx, "geneStrainRollupTtl", 300000L)));
+        }
+        if (ctx.getAttribute("SpecimenCountCache") == null) {
+            ctx.setAttribute("SpecimenCountCache", new ExpiringCache<String, Long>(
+                    (int) getLongParameter(ctx, "specimenCountCacheSize", 1000L),
+                    getLongParameter(ctx, "specimenCountCacheTtl", 60000L)));
+        }
+        if (ctx.getAttribute("MetadataGroupCache") == null) {
+            ctx.setAttribute("MetadataGroupCache", new LruCache<String, MetadataGroupToValues>(
+                    (int) getLongParameter(ctx, "metadataGroupCacheSize", 10000L)));
+        }
+        PersistenceManager pm
+                = (PersistenceManager) ctx.getAttribute("PersistenceManager");
+        if (ctx.getAttribute("SpecimenNameIndices") == null) {
+            ctx.setAttribute("SpecimenNameIndices", new SpecimenNameIndices(pm,
+                    (int) getLongParameter(ctx, "specimenNameIndexSize", 1000L),
+                    getLongParameter(ctx, "specimenNameIndexRefresh", 60000L),
+                    getLongParameter(ctx, "specimenNameIndexRebuild", 3600000L)));
+        }
+        if (ctx.getAttribute("UserDirectory") == null) {
+            ctx.setAttribute("UserDirectory", new UserDirectory(pm,
+                    getLongParameter(ctx, "userDirectoryRefresh", 600000L)));
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        ServletContext ctx = event.getServletContext();
+        ctx.removeAttribute("SessionCache");
+        ctx.removeAttribute("ParameterCatalogue");
+        ctx.removeAttribute("LineLevelData");
+        ctx.removeAttribute("IssueSummary");
+        ctx.removeAttribute("GeneStrainRollup");
+        ctx.removeAttribute("SpecimenCountCache");
+        ctx.removeAttribute("MetadataGroupCache");
+        SpecimenNameIndices sni
+                = (SpecimenNameIndices) ctx.getAttribute("SpecimenNameIndices");
+        if (sni != null) {
+            sni.shutdown();
+            ctx.removeAttribute("SpecimenNameIndices");
+        }
+        UserDirectory ud = (UserDirectory) ctx.getAttribute("UserDirectory");
+        if (ud != null) {
+            ud.shutdown();
+            ctx.removeAttribute("UserDirectory");
+        }
+    }
+}
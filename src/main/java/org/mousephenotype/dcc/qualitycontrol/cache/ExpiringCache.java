@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, thread-safe cache whose entries expire a fixed period after
+ * they were added. When it is full, the least recently used entry is
+ * discarded. This is meant for values that are expensive to compute and
+ * which may be slightly out of date, such as the total number of records
+ * shown in a paged grid.
+ *
+ * @author agent <agent@local>
+ */
+public class ExpiringCache<K, V> {
+
+    private final Map<K, Entry<V>> entries;
+    private final long ttl;
+
+    private static class Entry<V> {
+
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /* time-to-live is in milliseconds */
+    public ExpiringCache(final int capacity, long ttl) {
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /* returns null if there is no entry, or if it has expired */
+    public synchronized V get(K key) {
+        Entry<V> e = entries.get(key);
+        if (e == null) {
+            return null;
+        }
+        if (e.expiresAt < System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return e.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttl));
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import org.mousephenotype.dcc.entities.qc.DataContext;
+import org.mousephenotype.dcc.qualitycontrol.entities.GeneStrain;
+import org.mousephenotype.dcc.qualitycontrol.persistence.DataContextQueries;
+
+/**
+ * Per gene/strain rollup of the QC state and the number of unresolved
+ * issues of the data contexts in a centre and pipeline.
+ *
+ * This is the same as GeneStrain.findByCentrePipeline, but instead of
+ * aggregating every data context on each request, the state and number of
+ * unresolved issues of each data context are loaded once, and the rollup
+ * of a gene/strain is recomputed only when one of its data contexts is
+ * changed. The web services that change a data context must call update()
+ * after the transaction has been committed.
+ *
+ * update() only patches the data contexts that are already in a rollup.
+ * Data contexts that the crawler creates, or makes visible (for instance,
+ * by adding their first measurements), are not in the rollup until it is
+ * reloaded, so they stay invisible in the gene/strain list for up to the
+ * time-to-live; changes the crawler makes to contexts that are in the
+ * rollup are likewise only picked up by the reload. check() compares a
+ * rollup with the named query, and drops it if they differ.
+ *
+ * The rollups are created by CacheListener.
+ *
+ * @author agent <agent@local>
+ */
+public class GeneStrainRollup {
+
+    /* the data contexts shown in the tool, as in
+     * GeneStrain.findByCentrePipeline (see DataContextQueries) */
+    private static final String FROM = "FROM DataContext d " + DataContextQueries.JOINS
+            + " WHERE (d.cid = :cid AND d.lid = :lid AND " + DataContextQueries.VISIBLE + ")";
+    private static final String CONTRIBUTION = "SELECT d.id, d.gid, d.sid, d.stateId.cid, d.numIssues - d.numResolved ";
+    private static final String GENOTYPES = "SELECT g.genotypeId, g.geneSymbol, g.geneId, g.geneName, g.alleleName, g.genotype FROM Genotype g WHERE g.genotypeId IN :ids";
+    private static final String STRAINS = "SELECT s.strainId, s.strain FROM Strain s WHERE s.strainId IN :ids";
+
+    /* ordered by strain, and then by gene symbol, with nulls first and
+     * ignoring case (as in MySQL) */
+    private static final Comparator<GeneStrain> order = new Comparator<GeneStrain>() {
+        @Override
+        public int compare(GeneStrain a, GeneStrain b) {
+            int v = compareValues(a.getStrain(), b.getStrain());
+            return v == 0 ? compareValues(a.getGeneSymbol(), b.getGeneSymbol()) : v;
+        }
+    };
+
+    /* state and number of unresolved issues of a data context */
+    private static class Contribution {
+
+        private final Group group;
+        private short stateId;
+        private long numUnresolved;
+
+        private Contribution(Group group) {
+            this.group = group;
+        }
+    }
+
+    /* the data contexts of a gene/strain */
+    private static class Group {
+
+        private final GeneStrain geneStrain;
+        private final List<Contribution> contributions = new ArrayList<>();
+
+        private Group(GeneStrain geneStrain) {
+            this.geneStrain = geneStrain;
+        }
+
+        private void recompute() {
+            short stateId = 0;
+            long numUnresolved = 0L;
+            for (Contribution c : contributions) {
+                stateId = (short) Math.max(stateId, c.stateId);
+                numUnresolved += c.numUnresolved;
+            }
+            geneStrain.setStateId(stateId);
+            geneStrain.setNumUnresolved(numUnresolved);
+        }
+    }
+
+    private static class Rollup {
+
+        private final long loadedAt = System.currentTimeMillis();
+        private final List<Group> groups = new ArrayList<>();
+        private final Map<Long, Contribution> contexts = new HashMap<>();
+    }
+
+    /* updates that arrive while a rollup is being loaded; they are applied
+     * to the loaded rollup before it is published */
+    private static class Pending {
+
+        private final List<Object[]> rows = new ArrayList<>();
+        private boolean published;
+    }
+
+    private final long ttl;
+    private final Map<String, Rollup> rollups = new ConcurrentHashMap<>();
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+    /* time-to-live is in milliseconds */
+    public GeneStrainRollup(long ttl) {
+        this.ttl = ttl;
+    }
+
+    private static int compareValues(String a, String b) {
+        if (a == null) {
+            return b == null ? 0 : -1;
+        }
+        return b == null ? 1 : a.compareToIgnoreCase(b);
+    }
+
+    private static String getKey(Integer cid, Integer lid) {
+        return cid + ":" + lid;
+    }
+
+    private static void set(Contribution c, Object[] r) {
+        c.stateId = ((Number) r[3]).shortValue();
+        c.numUnresolved = r[4] == null ? 0L : ((Number) r[4]).longValue();
+    }
+
+    private static Set<Integer> getIds(List<Object[]> rows, int column) {
+        Set<Integer> ids = new HashSet<>();
+        for (Object[] r : rows) {
+            ids.add(((Number) r[column]).intValue());
+        }
+        return ids;
+    }
+
+    private static Map<Integer, Object[]> getDetails(EntityManager em,
+            String jpql, Set<Integer> ids) {
+        Map<Integer, Object[]> details = new HashMap<>();
+        if (!ids.isEmpty()) {
+            TypedQuery<Object[]> q = em.createQuery(jpql, Object[].class);
+            q.setParameter("ids", ids);
+            for (Object[] r : q.getResultList()) {
+                details.put(((Number) r[0]).intValue(), r);
+            }
+        }
+        return details;
+    }
+
+    private Rollup load(EntityManager em, Integer cid, Integer lid) {
+        TypedQuery<Object[]> q = em.createQuery(CONTRIBUTION + FROM,
+                Object[].class);
+        q.setParameter("cid", cid);
+        q.setParameter("lid", lid);
+        List<Object[]> rows = q.getResultList();
+        Map<Integer, Object[]> genotypes = getDetails(em, GENOTYPES, getIds(rows, 1));
+        Map<Integer, Object[]> strains = getDetails(em, STRAINS, getIds(rows, 2));
+
+        Rollup rollup = new Rollup();
+        Map<String, Group> groups = new HashMap<>();
+        for (Object[] r : rows) {
+            Integer gid = ((Number) r[1]).intValue();
+            Integer sid = ((Number) r[2]).intValue();
+            Object[] g = genotypes.get(gid);
+            Object[] s = strains.get(sid);
+            if (g == null || s == null) {
+                continue; /* inner joins in the named query */
+            }
+            String key = getKey(gid, sid);
+            Group group = groups.get(key);
+            if (group == null) {
+                group = new Group(new GeneStrain(cid, gid, sid,
+                        (String) g[1], (String) g[2], (String) g[3],
+                        (String) g[4], (String) s[1], (String) g[5],
+                        (short) 0, 0L));
+                groups.put(key, group);
+                rollup.groups.add(group);
+            }
+            Contribution c = new Contribution(group);
+            set(c, r);
+            group.contributions.add(c);
+            rollup.contexts.put(((Number) r[0]).longValue(), c);
+        }
+        for (Group group : rollup.groups) {
+            group.recompute();
+        }
+        return rollup;
+    }
+
+    private boolean isStale(Rollup r) {
+        return r == null || System.currentTimeMillis() - r.loadedAt > ttl;
+    }
+
+    /* Returns the rollup for the centre and pipeline, loading it if
+     * required. Only one thread loads a rollup, and the updates that arrive
+     * during the load are applied before it is published, so that none of
+     * them are lost. */
+    private Rollup getRollup(EntityManager em, Integer cid, Integer lid) {
+        String key = getKey(cid, lid);
+        Rollup r = rollups.get(key);
+        if (!isStale(r)) {
+            return r;
+        }
+        Object lock = locks.get(key);
+        if (lock == null) {
+            lock = new Object();
+            Object other = locks.putIfAbsent(key, lock);
+            if (other != null) {
+                lock = other;
+            }
+        }
+        synchronized (lock) {
+            r = rollups.get(key);
+            if (isStale(r)) {
+                Pending p = new Pending();
+                pending.put(key, p);
+                try {
+                    r = load(em, cid, lid);
+                    synchronized (p) {
+                        apply(r, p.rows);
+                        rollups.put(key, r);
+                        p.published = true;
+                    }
+                } finally {
+                    pending.remove(key);
+                }
+            }
+        }
+        return r;
+    }
+
+    /* returns a copy of the gene/strain rollups, in the same order as
+     * GeneStrain.findByCentrePipeline */
+    public List<GeneStrain> find(EntityManager em, Integer cid, Integer lid) {
+        Rollup r = getRollup(em, cid, lid);
+        List<GeneStrain> t = new ArrayList<>(r.groups.size());
+        synchronized (r) {
+            for (Group group : r.groups) {
+                GeneStrain g = group.geneStrain;
+                t.add(new GeneStrain(g.getCid(), g.getGid(), g.getSid(),
+                        g.getGeneSymbol(), g.getGeneId(), g.getGeneName(),
+                        g.getAlleleName(), g.getStrain(), g.getGenotype(),
+                        g.getStateId(), g.getNumUnresolved()));
+            }
+        }
+        Collections.sort(t, order);
+        return t;
+    }
+
+    private static void apply(Rollup r, List<Object[]> rows) {
+        synchronized (r) {
+            Set<Group> changed = new HashSet<>();
+            for (Object[] row : rows) {
+                Contribution c = r.contexts.get(((Number) row[0]).longValue());
+                if (c != null) {
+                    set(c, row);
+                    changed.add(c.group);
+                }
+            }
+            for (Group group : changed) {
+                group.recompute();
+            }
+        }
+    }
+
+    /* The rows are queued for the rollups being loaded before the loaded
+     * rollups are updated, so that a rollup published in between is still
+     * updated. */
+    private void update(List<Object[]> rows) {
+        for (Pending p : pending.values()) {
+            synchronized (p) {
+                if (!p.published) {
+                    p.rows.addAll(rows);
+                }
+            }
+        }
+        for (Rollup r : rollups.values()) {
+            apply(r, rows);
+        }
+    }
+
+    /* updates the rollups that include the supplied data contexts */
+    public void update(EntityManager em, Collection<Long> contextIds) {
+        if (contextIds.isEmpty() || (rollups.isEmpty() && pending.isEmpty())) {
+            return;
+        }
+        TypedQuery<Object[]> q = em.createQuery(CONTRIBUTION
+                + "FROM DataContext d WHERE d.id IN :ids", Object[].class);
+        q.setParameter("ids", contextIds);
+        update(q.getResultList());
+    }
+
+    public void update(EntityManager em, DataContext context) {
+        if (context == null || (rollups.isEmpty() && pending.isEmpty())) {
+            return;
+        }
+        TypedQuery<Object[]> q = em.createQuery(CONTRIBUTION
+                + "FROM DataContext d WHERE d = :context", Object[].class);
+        q.setParameter("context", context);
+        update(q.getResultList());
+    }
+
+    /* Compares the rollups with GeneStrain.findByCentrePipeline, and returns
+     * the gene/strains whose rollup is wrong (as returned by the query, or
+     * as rolled up if the query did not return them). If there are any, the
+     * rollup is reloaded when it is next used. */
+    public List<GeneStrain> check(EntityManager em, Integer cid, Integer lid) {
+        Map<String, GeneStrain> rolled = new HashMap<>();
+        for (GeneStrain g : find(em, cid, lid)) {
+            rolled.put(getKey(g.getGid(), g.getSid()), g);
+        }
+        TypedQuery<GeneStrain> q = em.createNamedQuery(
+                "GeneStrain.findByCentrePipeline", GeneStrain.class);
+        q.setParameter("cid", cid);
+        q.setParameter("lid", lid);
+        List<GeneStrain> wrong = new ArrayList<>();
+        for (GeneStrain g : q.getResultList()) {
+            GeneStrain r = rolled.remove(getKey(g.getGid(), g.getSid()));
+            if (r == null
+                    || !Objects.equals(r.getStateId(), g.getStateId())
+                    || !Objects.equals(r.getNumUnresolved(), g.getNumUnresolved())) {
+                wrong.add(g);
+            }
+        }
+        wrong.addAll(rolled.values()); /* not in the query */
+        if (!wrong.isEmpty()) {
+            System.err.println("Gene/strain rollup for centre " + cid
+                    + ", pipeline " + lid + " was inconsistent");
+            rollups.remove(getKey(cid, lid));
+        }
+        return wrong;
+    }
+}
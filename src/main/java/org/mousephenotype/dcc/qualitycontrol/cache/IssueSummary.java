@@ -0,0 +1,289 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import org.mousephenotype.dcc.qualitycontrol.persistence.AnIssueQueries;
+
+/**
+ * Denormalised summary of the issues raised in each centre, which is used
+ * for filtering, sorting and counting the issues in the issue grid without
+ * joining the data context, procedure, parameter and genotype tables.
+ *
+ * The summary of a centre is loaded with one query when it is first used,
+ * and it is reloaded once it has expired, to account for the issues that
+ * are changed by the crawler. Only one thread loads the summary of a
+ * centre. The web services that change an issue must call update() after
+ * the transaction has been committed; updates that arrive while a summary
+ * is being loaded are applied to it before it is published, so that none
+ * of them are lost. The summary is created by CacheListener.
+ *
+ * @author agent <agent@local>
+ */
+public class IssueSummary {
+
+    private static final String SELECT = "SELECT i.id, d.cid, i.lid, d.gid, d.sid, d.pid, d.qid, d.numMeasurements, i.status.cid, i.lastUpdate, g.geneSymbol, p.name, q.name, q.parameterKey FROM DataContext d, AnIssue i, Procedure p, Parameter q, Genotype g WHERE i.isDeleted = 0 AND i.contextId = d AND d.pid = p.procedureId AND d.qid = q.parameterId AND d.gid = g.genotypeId";
+
+    /* sort keys used by the client that can be sorted in the summary */
+    private static final Map<String, Comparator<Row>> comparators = new HashMap<>();
+
+    static {
+        comparators.put("lastUpdate", new Comparator<Row>() {
+            @Override
+            public int compare(Row a, Row b) {
+                return compareValues(a.lastUpdate, b.lastUpdate);
+            }
+        });
+        comparators.put("geneSymbol", new Comparator<Row>() {
+            @Override
+            public int compare(Row a, Row b) {
+                return compareValues(a.geneSymbol, b.geneSymbol);
+            }
+        });
+        comparators.put("procedure", new Comparator<Row>() {
+            @Override
+            public int compare(Row a, Row b) {
+                return compareValues(a.procedure, b.procedure);
+            }
+        });
+        comparators.put("parameter", new Comparator<Row>() {
+            @Override
+            public int compare(Row a, Row b) {
+                return compareValues(a.parameter, b.parameter);
+            }
+        });
+        comparators.put("qeid", new Comparator<Row>() {
+            @Override
+            public int compare(Row a, Row b) {
+                return compareValues(a.parameterKey, b.parameterKey);
+            }
+        });
+    }
+
+    public static class Row {
+
+        private final Long id;
+        private final Integer[] scope;
+        private final long numMeasurements;
+        private final int status;
+        private final Long lastUpdate;
+        private final String geneSymbol;
+        private final String procedure;
+        private final String parameter;
+        private final String parameterKey;
+
+        private Row(Object[] r) {
+            id = ((Number) r[0]).longValue();
+            scope = new Integer[AnIssueQueries.SCOPE.length];
+            for (int i = 0; i < scope.length; ++i) {
+                scope[i] = r[i + 1] == null ? null : ((Number) r[i + 1]).intValue();
+            }
+            numMeasurements = r[7] == null ? 0L : ((Number) r[7]).longValue();
+            status = ((Number) r[8]).intValue();
+            lastUpdate = r[9] == null ? null : ((Date) r[9]).getTime();
+            geneSymbol = (String) r[10];
+            procedure = (String) r[11];
+            parameter = (String) r[12];
+            parameterKey = (String) r[13];
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        private boolean isInScope(Integer[] s, int depth) {
+            for (int i = 0; i < depth; ++i) {
+                if (!s[i].equals(scope[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class Centre {
+
+        private final long loadedAt = System.currentTimeMillis();
+        private final Map<Long, Row> rows = new ConcurrentHashMap<>();
+    }
+
+    /* updates that arrive while the summary of a centre is being loaded,
+     * keyed by issue id (null if the issue was deleted); they are applied
+     * to the loaded summary before it is published */
+    private static class Pending {
+
+        private final Map<Long, Row> changes = new HashMap<>();
+        private boolean published;
+    }
+
+    private final long ttl;
+    private final Map<Integer, Centre> centres = new ConcurrentHashMap<>();
+    private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Object> locks = new ConcurrentHashMap<>();
+
+    /* time-to-live is in milliseconds */
+    public IssueSummary(long ttl) {
+        this.ttl = ttl;
+    }
+
+    /* MySQL sorts nulls first in ascending order */
+    private static int compareValues(Long a, Long b) {
+        if (a == null) {
+            return b == null ? 0 : -1;
+        }
+        return b == null ? 1 : a.compareTo(b);
+    }
+
+    /* as above, and ignoring case (as in the MySQL collation) */
+    private static int compareValues(String a, String b) {
+        if (a == null) {
+            return b == null ? 0 : -1;
+        }
+        return b == null ? 1 : a.compareToIgnoreCase(b);
+    }
+
+    public static boolean isSortable(String sort) {
+        return sort != null && comparators.containsKey(sort);
+    }
+
+    private Centre load(EntityManager em, Integer cid) {
+        Centre c = new Centre();
+        TypedQuery<Object[]> q = em.createQuery(
+                SELECT + " AND d.cid = :cid", Object[].class);
+        q.setParameter("cid", cid);
+        for (Object[] r : q.getResultList()) {
+            Row row = new Row(r);
+            c.rows.put(row.id, row);
+        }
+        return c;
+    }
+
+    private boolean isStale(Centre c) {
+        return c == null || System.currentTimeMillis() - c.loadedAt > ttl;
+    }
+
+    /* Returns the summary of the centre, loading it if required. Only one
+     * thread loads a summary, and the updates that arrive during the load
+     * are applied before it is published (see GeneStrainRollup). */
+    private Centre getCentre(EntityManager em, Integer cid) {
+        Centre c = centres.get(cid);
+        if (!isStale(c)) {
+            return c;
+        }
+        Object lock = locks.get(cid);
+        if (lock == null) {
+            lock = new Object();
+            Object other = locks.putIfAbsent(cid, lock);
+            if (other != null) {
+                lock = other;
+            }
+        }
+        synchronized (lock) {
+            c = centres.get(cid);
+            if (isStale(c)) {
+                Pending p = new Pending();
+                pending.put(cid, p);
+                try {
+                    c = load(em, cid);
+                    synchronized (p) {
+                        apply(cid, c, p.changes);
+                        centres.put(cid, c);
+                        p.published = true;
+                    }
+                } finally {
+                    pending.remove(cid);
+                }
+            }
+        }
+        return c;
+    }
+
+    /* returns the issues in the scope (see AnIssueQueries) that pass the
+     * filter, sorted by the supplied sort key and then by issue id */
+    public List<Row> find(EntityManager em, Integer[] scope, int filter,
+            String sort, final boolean ascending) {
+        int depth = AnIssueQueries.getDepth(scope);
+        List<Row> r = new ArrayList<>();
+        if (depth == 0) {
+            return r;
+        }
+        for (Row row : getCentre(em, scope[0]).rows.values()) {
+            if (row.isInScope(scope, depth)
+                    && AnIssueQueries.matches(filter, row.status, row.numMeasurements)) {
+                r.add(row);
+            }
+        }
+        final Comparator<Row> c = comparators.get(sort);
+        Collections.sort(r, new Comparator<Row>() {
+            @Override
+            public int compare(Row a, Row b) {
+                int v = c.compare(a, b);
+                if (v == 0) {
+                    v = a.id.compareTo(b.id);
+                }
+                return ascending ? v : -v;
+            }
+        });
+        return r;
+    }
+
+    private static void apply(Integer cid, Centre c, Map<Long, Row> changes) {
+        for (Map.Entry<Long, Row> e : changes.entrySet()) {
+            Row row = e.getValue();
+            if (row != null && cid.equals(row.scope[0])) {
+                c.rows.put(e.getKey(), row);
+            } else {
+                c.rows.remove(e.getKey());
+            }
+        }
+    }
+
+    /* Reloads the summary of an issue that was raised or changed; issues
+     * that were deleted are removed. The change is queued for the
+     * summaries being loaded before the loaded summaries are updated, so
+     * that a summary published in between is still updated. */
+    public void update(EntityManager em, Long issueId) {
+        if (centres.isEmpty() && pending.isEmpty()) {
+            return;
+        }
+        TypedQuery<Object[]> q = em.createQuery(
+                SELECT + " AND i.id = :id", Object[].class);
+        q.setParameter("id", issueId);
+        List<Object[]> r = q.getResultList();
+        Map<Long, Row> change = new HashMap<>();
+        change.put(issueId, r.isEmpty() ? null : new Row(r.get(0)));
+        for (Pending p : pending.values()) {
+            synchronized (p) {
+                if (!p.published) {
+                    p.changes.putAll(change);
+                }
+            }
+        }
+        for (Map.Entry<Integer, Centre> e : centres.entrySet()) {
+            apply(e.getKey(), e.getValue(), change);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import org.mousephenotype.dcc.qualitycontrol.entities.KeyValueRecord;
+
+/**
+ * Flattened key/value projection of the line-level parameters (e.g.,
+ * fertility and viability) submitted by a centre for a pipeline.
+ *
+ * Line-level data are stored in the raw submission tables, so retrieving
+ * the parameters of a single line requires a nine-way join. Instead, the
+ * parameters of all of the lines of a centre (and optionally, pipeline)
+ * are retrieved with one query, grouped by genotype, strain and procedure,
+ * and shared by all requests until they expire. Expired projections are
+ * reloaded when they are next used, so that newly validated submissions
+ * are picked up. Only one thread loads a projection; the other requests
+ * for it wait for the load instead of running the same join. The queries are registered as named queries when they are
+ * first used, so that their JPQL is only parsed once.
+ *
+ * @author agent <agent@local>
+ */
+public class LineLevelData {
+
+    private static final String SELECT = "SELECT DISTINCT g.genotypeId, g.strainId, p.procedureid, q.parameterKey, q.name, sp.value FROM Centreprocedure as cp left join ACentre as ct on (ct.shortName = cp.centreid) left join Line as l on (l.lineCentreprocedureHjid = cp) left join Genotype as g on (g.genotype = l.colonyid) left join ProcedureFromRaw as p on (p = l.procedureLineHjid) left join Simpleparameter as sp on (sp.simpleparameterProcedureH0 = p) left join Context as c on (c.subject = p.hjid) left join Parameter as q on (q.parameterKey = sp.parameterid) left join Pipeline as pl on (pl.pipelineKey = cp.pipeline) WHERE ct.centreId = :centreId AND sp.parameterid like :procedureFrag AND c.isValid = 1 AND c.isActive = 1";
+    /* a total order of the selected columns (a DISTINCT query cannot be
+     * ordered by any other), so that the records, and the record chosen
+     * for each parameter in ANY_PROCEDURE, do not depend on the plan */
+    private static final String ORDER = " ORDER BY q.parameterKey, p.procedureid, sp.value";
+    private static final String BY_CENTRE = "LineLevelData.findByCentre";
+    private static final String BY_PIPELINE = "LineLevelData.findByCentrePipeline";
+
+    /* procedure key used for the parameters of a line in all procedures,
+     * which only the centre-wide projections have (see find()); for each
+     * parameter key, it has the record from the procedure with the lowest
+     * key, and then the lowest value */
+    private static final String ANY_PROCEDURE = "*";
+
+    private static class Projection {
+
+        final Map<String, List<KeyValueRecord>> lines;
+        final long expiresAt;
+
+        Projection(Map<String, List<KeyValueRecord>> lines, long expiresAt) {
+            this.lines = lines;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<String, Projection> projections = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+    private final long ttl;
+
+    /* time-to-live is in milliseconds */
+    public LineLevelData(long ttl) {
+        this.ttl = ttl;
+    }
+
+    private static String getLineKey(Object genotypeId, Object strainId,
+            Object procedureKey) {
+        return genotypeId + ":" + strainId + ":" + procedureKey;
+    }
+
+    private static TypedQuery<Object[]> createQuery(EntityManager em,
+            String name, String jpql) {
+        try {
+            return em.createNamedQuery(name, Object[].class);
+        } catch (IllegalArgumentException e) {
+            em.getEntityManagerFactory()
+                    .addNamedQuery(name, em.createQuery(jpql, Object[].class));
+            return em.createNamedQuery(name, Object[].class);
+        }
+    }
+
+    private static void add(Map<String, List<KeyValueRecord>> lines,
+            String key, KeyValueRecord record) {
+        List<KeyValueRecord> records = lines.get(key);
+        if (records == null) {
+            records = new ArrayList<>();
+            lines.put(key, records);
+        }
+        records.add(record);
+    }
+
+    private Projection load(EntityManager em, String procedureFrag,
+            Integer centreId, Integer pipelineId) {
+        TypedQuery<Object[]> q;
+        if (pipelineId == null) {
+            q = createQuery(em, BY_CENTRE, SELECT + ORDER);
+        } else {
+            q = createQuery(em, BY_PIPELINE,
+                    SELECT + " AND pl.pipelineId = :pipelineId" + ORDER);
+            q.setParameter("pipelineId", pipelineId);
+        }
+        q.setParameter("centreId", centreId);
+        q.setParameter("procedureFrag", procedureFrag);
+        Map<String, List<KeyValueRecord>> lines = new HashMap<>();
+        Map<String, Set<String>> anyKeys = new HashMap<>();
+        for (Object[] r : q.getResultList()) {
+            KeyValueRecord record = new KeyValueRecord(
+                    (String) r[3], (String) r[4], (String) r[5]);
+            add(lines, getLineKey(r[0], r[1], r[2]), record);
+            if (pipelineId == null) {
+                /* one record per parameter across all of the procedures */
+                String key = getLineKey(r[0], r[1], ANY_PROCEDURE);
+                Set<String> keys = anyKeys.get(key);
+                if (keys == null) {
+                    keys = new HashSet<>();
+                    anyKeys.put(key, keys);
+                }
+                if (keys.add(record.getKey())) {
+                    add(lines, key, record);
+                }
+            }
+        }
+        return new Projection(lines, System.currentTimeMillis() + ttl);
+    }
+
+    private static boolean isStale(Projection p) {
+        return p == null || p.expiresAt < System.currentTimeMillis();
+    }
+
+    /* Returns the projection for the procedure fragment, centre and
+     * pipeline, loading it if required. Only one thread loads a
+     * projection (see GeneStrainRollup). */
+    private Projection getProjection(EntityManager em, String procedureFrag,
+            Integer centreId, Integer pipelineId) {
+        String key = procedureFrag + ":" + centreId + ":" + pipelineId;
+        Projection p = projections.get(key);
+        if (!isStale(p)) {
+            return p;
+        }
+        Object lock = locks.get(key);
+        if (lock == null) {
+            lock = new Object();
+            Object other = locks.putIfAbsent(key, lock);
+            if (other != null) {
+                lock = other;
+            }
+        }
+        synchronized (lock) {
+            p = projections.get(key);
+            if (isStale(p)) {
+                p = load(em, procedureFrag, centreId, pipelineId);
+                projections.put(key, p);
+            }
+        }
+        return p;
+    }
+
+    /* returns the parameters (ordered by parameter key) whose key contains
+     * the procedure fragment, e.g., "%_FER_%"; if the pipeline is null, the
+     * parameters from all pipelines are returned, and if the procedure is
+     * also null, one record for each parameter key in all of the
+     * procedures is returned (see ANY_PROCEDURE) */
+    public List<KeyValueRecord> find(EntityManager em, String procedureFrag,
+            Integer centreId, Integer pipelineId, Integer genotypeId,
+            Integer strainId, String procedureKey) {
+        Projection p = getProjection(em, procedureFrag, centreId, pipelineId);
+        List<KeyValueRecord> records
+                = p.lines.get(getLineKey(genotypeId, strainId,
+                                procedureKey == null ? ANY_PROCEDURE : procedureKey));
+        return records == null
+                ? Collections.<KeyValueRecord>emptyList()
+                : Collections.unmodifiableList(records);
+    }
+}
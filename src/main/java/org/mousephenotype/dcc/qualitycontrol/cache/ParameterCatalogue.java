@@ -0,0 +1,86 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.mousephenotype.dcc.qualitycontrol.entities.ParameterData;
+
+/**
+ * The IMPReSS details of the parameters in a procedure, keyed by the
+ * procedure id.
+ *
+ * These only depend on the procedure, so they are prepared once (already
+ * sorted for display) and shared by all requests until they expire.
+ * Requests must copy an entry before adding the data context state to it
+ * (see ParameterData(ParameterData)).
+ *
+ * @author agent <agent@local>
+ */
+public class ParameterCatalogue {
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttl;
+
+    private static class Entry {
+
+        final List<ParameterData> parameters;
+        final long expiresAt;
+
+        Entry(List<ParameterData> parameters, long expiresAt) {
+            this.parameters = parameters;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /* time-to-live is in milliseconds; zero or less disables caching */
+    public ParameterCatalogue(long ttl) {
+        this.ttl = ttl;
+    }
+
+    /* returns null if the procedure has not been catalogued recently */
+    public List<ParameterData> get(Integer procedureId) {
+        Entry e = entries.get(procedureId);
+        if (e == null) {
+            return null;
+        }
+        if (e.expiresAt < System.currentTimeMillis()) {
+            entries.remove(procedureId);
+            return null;
+        }
+        return e.parameters;
+    }
+
+    public void put(Integer procedureId, List<ParameterData> parameters) {
+        if (ttl > 0L) {
+            for (ParameterData pd : parameters) {
+                if (pd.getOptions() != null) {
+                    pd.setOptions(Collections.unmodifiableList(pd.getOptions()));
+                }
+            }
+            entries.put(procedureId, new Entry(
+                    Collections.unmodifiableList(new ArrayList<>(parameters)),
+                    System.currentTimeMillis() + ttl));
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+}
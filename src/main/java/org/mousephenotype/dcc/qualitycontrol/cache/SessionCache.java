@@ -0,0 +1,114 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the result of validating a Drupal session for a short period,
+ * so that we do not have to query the Drupal database for every request.
+ *
+ * Valid and invalid sessions are remembered for different periods. Invalid
+ * sessions should only be remembered briefly, so that a user who has just
+ * logged in does not have to wait for the entry to expire.
+ *
+ * @author agent <agent@local>
+ */
+public class SessionCache {
+
+    /* expired entries are purged when the cache grows beyond this */
+    private static final int PURGE_THRESHOLD = 10000;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long validTtl;
+    private final long invalidTtl;
+
+    private static class Entry {
+
+        final boolean isValid;
+        final long expiresAt;
+
+        Entry(boolean isValid, long expiresAt) {
+            this.isValid = isValid;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /* time-to-live are in milliseconds; zero or less disables caching */
+    public SessionCache(long validTtl, long invalidTtl) {
+        this.validTtl = validTtl;
+        this.invalidTtl = invalidTtl;
+    }
+
+    private String getKey(String sessionId, Integer userId) {
+        return userId + ":" + sessionId;
+    }
+
+    /* returns null if the session has not been validated recently */
+    public Boolean get(String sessionId, Integer userId) {
+        String key = getKey(sessionId, userId);
+        Entry e = entries.get(key);
+        if (e == null) {
+            return null;
+        }
+        if (e.expiresAt < System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return e.isValid;
+    }
+
+    public void put(String sessionId, Integer userId, boolean isValid) {
+        long ttl = isValid ? validTtl : invalidTtl;
+        if (ttl > 0L) {
+            if (entries.size() > PURGE_THRESHOLD) {
+                purge();
+            }
+            entries.put(getKey(sessionId, userId),
+                    new Entry(isValid, System.currentTimeMillis() + ttl));
+        }
+    }
+
+    public void invalidate(String sessionId, Integer userId) {
+        entries.remove(getKey(sessionId, userId));
+    }
+
+    public void invalidateUser(Integer userId) {
+        String prefix = userId + ":";
+        Iterator<String> i = entries.keySet().iterator();
+        while (i.hasNext()) {
+            if (i.next().startsWith(prefix)) {
+                i.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private void purge() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> i = entries.values().iterator();
+        while (i.hasNext()) {
+            if (i.next().expiresAt < now) {
+                i.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trigram index over the names of the specimens in a data context, which
+ * is used for finding the specimens whose name contains a search string.
+ *
+ * A search for a string with at least three characters only checks the
+ * specimens that contain all of the trigrams in the string; shorter
+ * strings are matched against every name. Like the MySQL collation used
+ * by the database, matching is case-insensitive.
+ *
+ * Specimens are only ever added to the index, together with the procedure
+ * occurrence that brought them into the data context, so that the owner
+ * can add the specimens from newer procedure occurrences. The owner should
+ * replace the index periodically to account for specimens that were
+ * renamed or removed.
+ *
+ * The search string is matched literally; SQL LIKE wildcards are not
+ * supported (see hasWildcards()).
+ *
+ * @author agent <agent@local>
+ */
+public class SpecimenNameIndex {
+
+    private static final int N = 3;
+
+    private final Map<String, Set<Object>> grams = new HashMap<>();
+    private final Map<Object, String> names = new HashMap<>();
+    private final long createdAt = System.currentTimeMillis();
+    private long updatedAt = createdAt;
+    private long maxOccurrenceId = -1L;
+
+    public synchronized void add(Object animalId, String name,
+            Object occurrenceId) {
+        if (occurrenceId instanceof Number) {
+            maxOccurrenceId = Math.max(maxOccurrenceId,
+                    ((Number) occurrenceId).longValue());
+        }
+        if (animalId == null || name == null) {
+            return;
+        }
+        String n = name.toLowerCase();
+        names.put(animalId, n);
+        for (int i = 0, c = n.length() - N; i <= c; ++i) {
+            String g = n.substring(i, i + N);
+            Set<Object> ids = grams.get(g);
+            if (ids == null) {
+                ids = new HashSet<>();
+                grams.put(g, ids);
+            }
+            ids.add(animalId);
+        }
+    }
+
+    /* returns the animal ids of the specimens whose name contains the
+     * supplied string */
+    public synchronized List<Object> find(String query) {
+        String q = query.toLowerCase();
+        List<Object> r = new ArrayList<>();
+        if (q.length() < N) {
+            for (Map.Entry<Object, String> e : names.entrySet()) {
+                if (e.getValue().contains(q)) {
+                    r.add(e.getKey());
+                }
+            }
+            return r;
+        }
+
+        /* start with the trigram that has the fewest specimens */
+        Set<Object> smallest = null;
+        for (int i = 0, c = q.length() - N; i <= c; ++i) {
+            Set<Object> ids = grams.get(q.substring(i, i + N));
+            if (ids == null) {
+                return r;
+            }
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        for (Object id : smallest) {
+            if (names.get(id).contains(q)) {
+                r.add(id);
+            }
+        }
+        return r;
+    }
+
+    /* returns true if the string contains SQL LIKE wildcards, which the
+     * index cannot match */
+    public static boolean hasWildcards(String query) {
+        return query.indexOf('%') != -1 || query.indexOf('_') != -1;
+    }
+
+    public synchronized long getMaxOccurrenceId() {
+        return maxOccurrenceId;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public synchronized long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public synchronized void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
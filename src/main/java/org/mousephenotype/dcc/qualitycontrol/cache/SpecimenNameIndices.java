@@ -0,0 +1,184 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import org.mousephenotype.dcc.entities.overviews.ProcedureAnimalOverview;
+import org.mousephenotype.dcc.qualitycontrol.persistence.PersistenceManager;
+
+/**
+ * Specimen name indices (see SpecimenNameIndex) for the data contexts
+ * whose specimens were recently searched by name.
+ *
+ * The index of a data context is built in the background when it is first
+ * needed; until it is ready, find() returns null and the caller must match
+ * the name in the database. Once built, the index is trusted: a search
+ * that finds nothing adds the specimens from newer procedure occurrences
+ * to the index once, and if there is still no match, there is none.
+ * Specimens are also added periodically, and the index is rebuilt in the
+ * background less frequently, in case specimens were renamed or removed;
+ * the old index is used while the new one is being built. Call clear()
+ * after specimens were renamed or removed to drop all of the indices.
+ *
+ * @author agent <agent@local>
+ */
+public class SpecimenNameIndices {
+
+    private static final String NAMES = "SELECT pao.animalId, pao.animalName, pao.procedureOccurrenceId FROM ProcedureAnimalOverview pao, Pipeline l WHERE pao.pipeline = l.pipelineKey AND pao.centreId = :cid AND l.pipelineId = :lid AND pao.genotypeId = :gid AND pao.strainId = :sid AND pao.procedureId = :peid AND pao.procedureOccurrenceId > :after";
+
+    private final PersistenceManager pm;
+    private final LruCache<String, SpecimenNameIndex> indices;
+    private final ConcurrentMap<String, Boolean> building = new ConcurrentHashMap<>();
+    private final ExecutorService builder;
+    private final long refreshInterval;
+    private final long rebuildInterval;
+    /* incremented by clear(), so that indices built from names read
+     * before then are discarded */
+    private long generation = 0L;
+
+    /* intervals are in milliseconds */
+    public SpecimenNameIndices(PersistenceManager pm, int capacity,
+            long refreshInterval, long rebuildInterval) {
+        this.pm = pm;
+        this.indices = new LruCache<>(capacity);
+        this.refreshInterval = refreshInterval;
+        this.rebuildInterval = rebuildInterval;
+        this.builder = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "SpecimenNameIndices");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    private static String getKey(Integer cid, Integer lid, Integer gid,
+            Integer sid, String peid) {
+        return cid + ":" + lid + ":" + gid + ":" + sid + ":" + peid;
+    }
+
+    /* adds the specimens from procedure occurrences that are newer than
+     * the ones already in the index */
+    private void addSpecimenNames(EntityManager em, SpecimenNameIndex index,
+            Integer cid, Integer lid, Integer gid, Integer sid, String peid) {
+        TypedQuery<Object[]> q = em.createQuery(NAMES, Object[].class);
+        q.setParameter("cid", cid);
+        q.setParameter("lid", lid);
+        q.setParameter("gid", gid);
+        q.setParameter("sid", sid);
+        q.setParameter("peid", peid);
+        long after = index.getMaxOccurrenceId();
+        Class<?> type = em.getMetamodel().entity(ProcedureAnimalOverview.class)
+                .getAttribute("procedureOccurrenceId").getJavaType();
+        q.setParameter("after", type == BigInteger.class
+                ? BigInteger.valueOf(after) : (Object) after);
+        for (Object[] r : q.getResultList()) {
+            index.add(r[0], (String) r[1], r[2]);
+        }
+    }
+
+    /* builds a new index for the data context with an entity manager of
+     * its own, unless it is already being built */
+    private void build(final String key, final Integer cid, final Integer lid,
+            final Integer gid, final Integer sid, final String peid) {
+        if (building.putIfAbsent(key, Boolean.TRUE) != null) {
+            return;
+        }
+        final long g = getGeneration();
+        try {
+            builder.execute(new Runnable() {
+                @Override
+                public void run() {
+                    EntityManager em = null;
+                    try {
+                        em = pm.getEntityManagerFactory().createEntityManager();
+                        SpecimenNameIndex index = new SpecimenNameIndex();
+                        addSpecimenNames(em, index, cid, lid, gid, sid, peid);
+                        synchronized (SpecimenNameIndices.this) {
+                            if (generation == g) {
+                                indices.put(key, index);
+                            }
+                        }
+                    } catch (Exception e) {
+                        System.err.println("Unable to build specimen name index for "
+                                + key + ": " + e.getMessage());
+                    } finally {
+                        building.remove(key);
+                        if (em != null) {
+                            em.close();
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            building.remove(key);
+        }
+    }
+
+    /* Returns the animal ids of the specimens in the data context whose
+     * name contains the supplied string, or null if the index for the data
+     * context is not ready yet. The entity manager is only used for adding
+     * the specimens from newer procedure occurrences. */
+    public List<Object> find(EntityManager em, Integer cid, Integer lid,
+            Integer gid, Integer sid, String peid, String name) {
+        String key = getKey(cid, lid, gid, sid, peid);
+        SpecimenNameIndex index = indices.get(key);
+        if (index == null) {
+            build(key, cid, lid, gid, sid, peid);
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (index.getCreatedAt() + rebuildInterval < now) {
+            build(key, cid, lid, gid, sid, peid);
+        }
+        boolean refreshed = false;
+        if (index.getUpdatedAt() + refreshInterval < now) {
+            index.setUpdatedAt(now);
+            addSpecimenNames(em, index, cid, lid, gid, sid, peid);
+            refreshed = true;
+        }
+        List<Object> ids = index.find(name);
+        if (ids.isEmpty() && !refreshed) {
+            index.setUpdatedAt(now);
+            addSpecimenNames(em, index, cid, lid, gid, sid, peid);
+            ids = index.find(name);
+        }
+        return ids;
+    }
+
+    private synchronized long getGeneration() {
+        return generation;
+    }
+
+    public synchronized void clear() {
+        ++generation;
+        indices.clear();
+    }
+
+    public void shutdown() {
+        builder.shutdownNow();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import org.mousephenotype.dcc.entities.qc.AUser;
+import org.mousephenotype.dcc.qualitycontrol.persistence.PersistenceManager;
+
+/**
+ * Display names of the Drupal users, keyed by their user id.
+ *
+ * All of the users are loaded from the Drupal database when the web
+ * application starts, and then reloaded periodically in the background.
+ * Every reload replaces the entire map, so lookups never have to lock.
+ * A user who has registered since the last reload is looked up in the
+ * Drupal database when they are first seen, and remembered until the next
+ * reload.
+ *
+ * @author agent <agent@local>
+ */
+public class UserDirectory {
+
+    private final PersistenceManager pm;
+    private final ScheduledExecutorService scheduler;
+    private volatile Map<Integer, String> names = Collections.emptyMap();
+    private final Map<Integer, String> recent = new ConcurrentHashMap<>();
+
+    /* refresh interval is in milliseconds */
+    public UserDirectory(PersistenceManager pm, long refreshInterval) {
+        this.pm = pm;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "UserDirectory");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                refresh();
+            }
+        }, 0L, refreshInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private EntityManager createEntityManager() {
+        EntityManagerFactory emf = pm.getDrupalEntityManagerFactory();
+        return emf.createEntityManager();
+    }
+
+    public void refresh() {
+        EntityManager em = null;
+        try {
+            em = createEntityManager();
+            TypedQuery<AUser> q = em.createQuery("SELECT u FROM AUser u",
+                    AUser.class);
+            Map<Integer, String> temp = new HashMap<>();
+            for (AUser u : q.getResultList()) {
+                temp.put(u.getUid(), u.toString());
+            }
+            names = temp;
+            recent.clear();
+        } catch (Exception e) {
+            System.err.println("Unable to load users from Drupal database: "
+                    + e.getMessage());
+        } finally {
+            if (em != null) {
+                em.close();
+            }
+        }
+    }
+
+    /* returns null if there is no user with the supplied id */
+    public String getName(Integer userId) {
+        if (userId == null) {
+            return null;
+        }
+        String name = names.get(userId);
+        if (name == null) {
+            name = recent.get(userId);
+            if (name == null) {
+                name = find(userId);
+                if (name != null) {
+                    recent.put(userId, name);
+                }
+            }
+        }
+        return name;
+    }
+
+    private String find(Integer userId) {
+        EntityManager em = null;
+        String name = null;
+        try {
+            em = createEntityManager();
+            AUser u = em.find(AUser.class, userId);
+            if (u != null) {
+                name = u.toString();
+            }
+        } catch (Exception e) {
+            System.err.println("Unable to find user with id "
+                    + userId + " in Drupal database.");
+        } finally {
+            if (em != null) {
+                em.close();
+            }
+        }
+        return name;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.entities;
+
+import java.io.Serializable;
+import org.apache.tomcat.jdbc.pool.DataSource;
+
+/**
+ * Current usage of a database connection pool.
+ *
+ * @author agent <agent@local>
+ */
+public class ConnectionPoolStatistics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private String name;
+    private Integer size;
+    private Integer active;
+    private Integer idle;
+    private Integer waiting;
+    private Integer minIdle;
+    private Integer maxIdle;
+    private Integer maxActive;
+    private Integer maxWait;
+
+    public ConnectionPoolStatistics() {
+    }
+
+    public ConnectionPoolStatistics(String name, DataSource ds) {
+        this.name = name;
+        this.size = ds.getSize();
+        this.active = ds.getActive();
+        this.idle = ds.getIdle();
+        this.waiting = ds.getWaitCount();
+        this.minIdle = ds.getMinIdle();
+        this.maxIdle = ds.getMaxIdle();
+        this.maxActive = ds.getMaxActive();
+        this.maxWait = ds.getMaxWait();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
+    public Integer getActive() {
+        return active;
+    }
+
+    public void setActive(Integer active) {
+        this.active = active;
+    }
+
+    public Integer getIdle() {
+        return idle;
+    }
+
+    public void setIdle(Integer idle) {
+        this.idle = idle;
+    }
+
+    public Integer getWaiting() {
+        return waiting;
+    }
+
+    public void setWaiting(Integer waiting) {
+        this.waiting = waiting;
+    }
+
+    public Integer getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(Integer minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public Integer getMaxIdle() {
+        return maxIdle;
+    }
+
+    public void setMaxIdle(Integer maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    public Integer getMaxActive() {
+        return maxActive;
+    }
+
+    public void setMaxActive(Integer maxActive) {
+        this.maxActive = maxActive;
+    }
+
+    public Integer getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(Integer maxWait) {
+        this.maxWait = maxWait;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.entities;
+
+import java.io.Serializable;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Progress of a long running task that was started by a web service, such
+ * as marking all of the data contexts of a centre as QC done. The client
+ * polls the task until it has finished.
+ *
+ * @author agent <agent@local>
+ */
+@XmlRootElement
+public class JobStatus implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private Long id;
+    private String description;
+    private volatile long total = -1L; /* negative until known */
+    private volatile long done = 0L;
+    private volatile boolean finished = false;
+    private volatile boolean failed = false;
+    private volatile String message;
+    private Long started;
+    private volatile Long completed;
+
+    public JobStatus() {
+    }
+
+    public JobStatus(Long id, String description) {
+        this.id = id;
+        this.description = description;
+        this.started = System.currentTimeMillis();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getDone() {
+        return done;
+    }
+
+    public void setDone(long done) {
+        this.done = done;
+    }
+
+    public synchronized void addDone(long count) {
+        this.done += count;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public void setFinished(boolean finished) {
+        this.finished = finished;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public Long getStarted() {
+        return started;
+    }
+
+    public void setStarted(Long started) {
+        this.started = started;
+    }
+
+    public Long getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(Long completed) {
+        this.completed = completed;
+    }
+
+    public void finish(boolean failed, String message) {
+        this.failed = failed;
+        this.message = message;
+        this.completed = System.currentTimeMillis();
+        this.finished = true;
+    }
+}
@@ -71,6 +71,28 @@ public class ParameterData implements Serializable {
     public ParameterData() {
     }
 
+    /* copies the IMPReSS details, but not the data context state */
+    public ParameterData(ParameterData other) {
+        this.parameterId = other.parameterId;
+        this.stableid = other.stableid;
+        this.parameterName = other.parameterName;
+        this.procedureId = other.procedureId;
+        this.weight = other.weight;
+        this.graphType = other.graphType;
+        this.datatype = other.datatype;
+        this.unit = other.unit;
+        this.incrementId = other.incrementId;
+        this.incrementValue = other.incrementValue;
+        this.incrementType = other.incrementType;
+        this.incrementUnit = other.incrementUnit;
+        this.incrementMin = other.incrementMin;
+        this.options = other.options;
+        this.usableQcBound = other.usableQcBound;
+        this.qcMin = other.qcMin;
+        this.qcMax = other.qcMax;
+        this.required = other.required;
+    }
+
     @XmlElement(name = "d")
     public String getDatatype() {
         return datatype;
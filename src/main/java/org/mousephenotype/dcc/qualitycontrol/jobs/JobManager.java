@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.jobs;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import org.mousephenotype.dcc.qualitycontrol.entities.JobStatus;
+
+/**
+ * Runs long running tasks in the background, one at a time, and keeps
+ * track of their progress so that clients can poll them.
+ *
+ * Tasks are run one after the other, so that large database updates do not
+ * compete with each other. The status of a finished task is kept for an
+ * hour.
+ *
+ * @author agent <agent@local>
+ */
+public class JobManager {
+
+    /* how long (milliseconds) to keep the status of finished tasks */
+    private static final long RETENTION = 3600000L;
+
+    public interface Task {
+
+        /* should update the total and done counts in the status */
+        void run(JobStatus status) throws Exception;
+    }
+
+    private final AtomicLong nextId = new AtomicLong(1L);
+    private final Map<Long, JobStatus> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor
+            = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "JobManager");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    public JobStatus submit(String description, final Task task) {
+        purge();
+        final JobStatus status
+                = new JobStatus(nextId.getAndIncrement(), description);
+        jobs.put(status.getId(), status);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run(status);
+                    status.finish(false, null);
+                } catch (Exception e) {
+                    System.err.println(status.getDescription() + " failed: "
+                            + e.getMessage());
+                    status.finish(true, e.getMessage());
+                }
+            }
+        });
+        return status;
+    }
+
+    /* returns null if there is no such task */
+    public JobStatus get(Long id) {
+        return id == null ? null : jobs.get(id);
+    }
+
+    private void purge() {
+        long expired = System.currentTimeMillis() - RETENTION;
+        Iterator<JobStatus> i = jobs.values().iterator();
+        while (i.hasNext()) {
+            JobStatus s = i.next();
+            if (s.isFinished() && s.getCompleted() < expired) {
+                i.remove();
+            }
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.jobs;
+
+import java.util.List;
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import org.mousephenotype.dcc.entities.qc.AState;
+import org.mousephenotype.dcc.entities.qc.ActionType;
+import org.mousephenotype.dcc.entities.qc.DataContext;
+import org.mousephenotype.dcc.entities.qc.History;
+import org.mousephenotype.dcc.qualitycontrol.cache.GeneStrainRollup;
+import org.mousephenotype.dcc.qualitycontrol.entities.JobStatus;
+import org.mousephenotype.dcc.qualitycontrol.persistence.PersistenceManager;
+
+/**
+ * Marks every data context in a scope as QC done (see JobManager).
+ *
+ * The centre and pipeline are required; the genotype, strain and procedure
+ * narrow the scope further. Since a scope could contain hundreds of
+ * thousands of contexts, they are updated in bounded transactions of
+ * CHUNK_SIZE contexts. Contexts that are already QC done are skipped. The
+ * task only holds what it was given, and uses an entity manager of its own,
+ * because it runs after the request that submitted it has finished.
+ *
+ * @author agent <agent@local>
+ */
+public class QcDoneTask implements JobManager.Task {
+
+    /* number of data contexts to mark as QC done in each transaction */
+    private static final int CHUNK_SIZE = 500;
+
+    private final PersistenceManager pm;
+    private final GeneStrainRollup rollup;
+    private final Integer cid;
+    private final Integer lid;
+    private final Integer gid;
+    private final Integer sid;
+    private final Integer pid;
+    private final Integer userId;
+
+    /* the rollup may be null */
+    public QcDoneTask(PersistenceManager pm, GeneStrainRollup rollup,
+            Integer cid, Integer lid, Integer gid, Integer sid, Integer pid,
+            Integer userId) {
+        this.pm = pm;
+        this.rollup = rollup;
+        this.cid = cid;
+        this.lid = lid;
+        this.gid = gid;
+        this.sid = sid;
+        this.pid = pid;
+        this.userId = userId;
+    }
+
+    public String getDescription() {
+        return "QC done for centre " + cid + ", pipeline " + lid
+                + (gid == null ? "" : ", genotype " + gid)
+                + (sid == null ? "" : ", strain " + sid)
+                + (pid == null ? "" : ", procedure " + pid);
+    }
+
+    /* Marks the data contexts as QC done in one transaction, using a bulk
+     * update of the state and one batch of history inserts (JDBC batch
+     * writing is enabled in persistence.xml), and then evicts them from the
+     * shared cache and updates the rollups (the rollup may be null). The
+     * histories are not inserted with INSERT ... SELECT, since JPQL has no
+     * INSERT, and a native statement would have to duplicate the table,
+     * column and id generation mapping of History. */
+    public static void markContextsAsQcDone(
+            List<Long> contextIds,
+            AState state,
+            ActionType actionType,
+            Integer userId,
+            EntityManager em,
+            GeneStrainRollup rollup) {
+        if (contextIds.isEmpty() || state == null || actionType == null) {
+            return;
+        }
+        try {
+            em.getTransaction().begin();
+            em.createQuery("UPDATE DataContext d SET d.stateId = :state "
+                    + "WHERE d.id IN :ids")
+                    .setParameter("state", state)
+                    .setParameter("ids", contextIds)
+                    .executeUpdate();
+            for (Long id : contextIds) {
+                em.persist(new History(
+                        em.getReference(DataContext.class, id),
+                        userId, actionType, state, null, null));
+            }
+            em.getTransaction().commit();
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            Cache cache = em.getEntityManagerFactory().getCache();
+            for (Long id : contextIds) {
+                cache.evict(DataContext.class, id);
+            }
+        }
+        if (rollup != null) {
+            try {
+                rollup.update(em, contextIds);
+            } catch (Exception e) {
+                System.err.println("Failed to update gene/strain rollups: "
+                        + e.getMessage());
+            }
+        }
+    }
+
+    private String getScopeCondition() {
+        return "WHERE d.cid = :cid AND d.lid = :lid "
+                + (gid == null ? "" : "AND d.gid = :gid ")
+                + (sid == null ? "" : "AND d.sid = :sid ")
+                + (pid == null ? "" : "AND d.pid = :pid ")
+                + "AND d.stateId <> :state";
+    }
+
+    private void setScopeParameters(TypedQuery<?> q, AState state) {
+        q.setParameter("cid", cid);
+        q.setParameter("lid", lid);
+        if (gid != null) {
+            q.setParameter("gid", gid);
+        }
+        if (sid != null) {
+            q.setParameter("sid", sid);
+        }
+        if (pid != null) {
+            q.setParameter("pid", pid);
+        }
+        q.setParameter("state", state);
+    }
+
+    @Override
+    public void run(JobStatus status) throws Exception {
+        EntityManager em = pm.getEntityManagerFactory().createEntityManager();
+        try {
+            AState state = em.createNamedQuery("AState.findByShortName",
+                    AState.class).setParameter("shortName", "qcdone")
+                    .setMaxResults(1).getSingleResult();
+            ActionType actionType = em.createNamedQuery(
+                    "ActionType.findByShortName", ActionType.class)
+                    .setParameter("shortName", "qcdone")
+                    .setMaxResults(1).getSingleResult();
+            String condition = getScopeCondition();
+
+            TypedQuery<Long> c = em.createQuery(
+                    "SELECT COUNT(d) FROM DataContext d " + condition,
+                    Long.class);
+            setScopeParameters(c, state);
+            status.setTotal(c.getSingleResult());
+
+            /* page through the contexts by id, so that each chunk starts
+             * where the previous one ended, whatever was updated */
+            TypedQuery<Long> q = em.createQuery(
+                    "SELECT d.id FROM DataContext d " + condition
+                    + " AND d.id > :last ORDER BY d.id", Long.class);
+            setScopeParameters(q, state);
+            q.setMaxResults(CHUNK_SIZE);
+            Long last = 0L;
+            List<Long> contextIds;
+            do {
+                q.setParameter("last", last);
+                contextIds = q.getResultList();
+                if (!contextIds.isEmpty()) {
+                    markContextsAsQcDone(contextIds, state, actionType,
+                            userId, em, rollup);
+                    last = contextIds.get(contextIds.size() - 1);
+                    status.addDone(contextIds.size());
+
+                    /* release the histories of this chunk */
+                    em.clear();
+                    state = em.merge(state);
+                    actionType = em.merge(actionType);
+                }
+            } while (contextIds.size() == CHUNK_SIZE);
+        } finally {
+            em.close();
+        }
+    }
+}
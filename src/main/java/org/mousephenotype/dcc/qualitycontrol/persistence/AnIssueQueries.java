@@ -0,0 +1,224 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.persistence;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import org.mousephenotype.dcc.entities.qc.AnIssue;
+
+/**
+ * Named queries for listing the issues raised in a scope (see
+ * AnIssueFacadeREST).
+ *
+ * The scope is the centre, optionally narrowed down by pipeline, genotype,
+ * strain, procedure and parameter (in that order), and the filter is the
+ * bitmask of issue types to include. Most listings are served from the
+ * IssueSummary, which applies the same filter using matches(); the select
+ * queries are only used for sorting by the issue attributes that are not
+ * in the summary, together with the count query, so that the total agrees
+ * with the pages. There is one count query for every scope and filter, and
+ * one select query for every scope, filter and sort order. Since there are too many to parse at start up, each query is
+ * registered with the entity manager factory when it is first used, so
+ * that its JPQL is only parsed once.
+ *
+ * @author agent <agent@local>
+ */
+public class AnIssueQueries {
+
+    /* These must match the values in the web-app (Viewport.js) */
+    public static final int INCLUDE_NEW_ISSUES = 0x1;
+    public static final int INCLUDE_ACCEPTED_ISSUES = 0x2;
+    public static final int INCLUDE_RESOLVED_ISSUES = 0x4;
+    public static final int INCLUDE_DATAADDED_ISSUES = 0x8;
+    public static final int INCLUDE_DATAREMOVED_ISSUES = 0x10;
+    public static final int INCLUDE_DATACHANGED_ISSUES = 0x20;
+    public static final int INCLUDE_NODATA_ISSUES = 0x40;
+    public static final int FILTER_MASK = 0x7f;
+
+    /* These are consistent identifiers (cid) from phenodcc_qc.issue_status */
+    private static final int NEW_ISSUE = 0;
+    private static final int ACCEPTED_ISSUE = 1;
+    private static final int RESOLVED_ISSUE = 4;
+    private static final int DATAADDED_ISSUE = 6;
+    private static final int DATAREMOVED_ISSUE = 7;
+    private static final int DATACHANGED_ISSUE = 8;
+
+    /* the scope parameters, from the widest to the narrowest */
+    public static final String[] SCOPE = {"cid", "lid", "gid", "sid", "pid", "qid"};
+
+    public static final String DEFAULT_SORT = "lastUpdate";
+
+    /* sort keys used by the client that are not issue attributes */
+    private static final Map<String, String> columns = new HashMap<>();
+
+    static {
+        columns.put("geneSymbol", "g.geneSymbol");
+        columns.put("procedure", "p.name");
+        columns.put("parameter", "q.name");
+        columns.put("qeid", "q.parameterKey");
+    }
+
+    private static final String FROM = "FROM DataContext d, AnIssue i, Procedure p, Parameter q";
+    private static final String JOIN = " WHERE i.isDeleted = 0 AND i.contextId = d AND d.pid = p.procedureId AND d.qid = q.parameterId";
+
+    private AnIssueQueries() {
+    }
+
+    /* the issue attribute is checked against the metamodel, since it is
+     * added to the JPQL */
+    public static boolean isSortable(EntityManager em, String sort) {
+        if (sort == null) {
+            return false;
+        }
+        if (columns.containsKey(sort)) {
+            return true;
+        }
+        try {
+            em.getMetamodel().entity(AnIssue.class).getAttribute(sort);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String getColumn(String sort) {
+        String column = columns.get(sort);
+        return column == null ? "i." + sort : column;
+    }
+
+    private static String getConditions(int depth, int filter) {
+        StringBuilder c = new StringBuilder(JOIN);
+        c.append(" AND d.cid = :cid");
+        if (depth > 1) {
+            c.append(" AND i.lid = :lid");
+        }
+        for (int i = 2; i < depth; ++i) {
+            c.append(" AND d.").append(SCOPE[i]).append(" = :").append(SCOPE[i]);
+        }
+        if ((filter & INCLUDE_NODATA_ISSUES) == 0x0) {
+            c.append(" AND d.numMeasurements <> 0");
+        }
+        if ((filter & INCLUDE_NEW_ISSUES) == 0x0) {
+            c.append(" AND i.status.cid <> ").append(NEW_ISSUE);
+        }
+        if ((filter & INCLUDE_ACCEPTED_ISSUES) == 0x0) {
+            c.append(" AND i.status.cid <> ").append(ACCEPTED_ISSUE);
+        }
+        if ((filter & INCLUDE_RESOLVED_ISSUES) == 0x0) {
+            c.append(" AND i.status.cid <> ").append(RESOLVED_ISSUE);
+        }
+        if ((filter & INCLUDE_DATAADDED_ISSUES) == 0x0) {
+            c.append(" AND i.status.cid <> ").append(DATAADDED_ISSUE);
+        }
+        if ((filter & INCLUDE_DATAREMOVED_ISSUES) == 0x0) {
+            c.append(" AND i.status.cid <> ").append(DATAREMOVED_ISSUE);
+        }
+        if ((filter & INCLUDE_DATACHANGED_ISSUES) == 0x0) {
+            c.append(" AND i.status.cid <> ").append(DATACHANGED_ISSUE);
+        }
+        return c.toString();
+    }
+
+    /* the filter conditions above, for issues that have been loaded */
+    public static boolean matches(int filter, int status, long numMeasurements) {
+        return ((filter & INCLUDE_NODATA_ISSUES) != 0x0 || numMeasurements != 0)
+                && ((filter & INCLUDE_NEW_ISSUES) != 0x0 || status != NEW_ISSUE)
+                && ((filter & INCLUDE_ACCEPTED_ISSUES) != 0x0 || status != ACCEPTED_ISSUE)
+                && ((filter & INCLUDE_RESOLVED_ISSUES) != 0x0 || status != RESOLVED_ISSUE)
+                && ((filter & INCLUDE_DATAADDED_ISSUES) != 0x0 || status != DATAADDED_ISSUE)
+                && ((filter & INCLUDE_DATAREMOVED_ISSUES) != 0x0 || status != DATAREMOVED_ISSUE)
+                && ((filter & INCLUDE_DATACHANGED_ISSUES) != 0x0 || status != DATACHANGED_ISSUE);
+    }
+
+    private static String getCountName(int depth, int filter) {
+        return "AnIssue.count." + depth + "." + filter;
+    }
+
+    private static String getCountQuery(int depth, int filter) {
+        return "SELECT COUNT(i) " + FROM + ", Genotype g"
+                + getConditions(depth, filter)
+                + " AND d.gid = g.genotypeId";
+    }
+
+    private static String getSelectName(int depth, int filter,
+            String sort, boolean ascending) {
+        return "AnIssue.select." + depth + "." + filter + "." + sort
+                + (ascending ? ".ASC" : ".DESC");
+    }
+
+    private static String getSelectQuery(int depth, int filter,
+            String sort, boolean ascending) {
+        return "SELECT i " + FROM + ", Genotype g"
+                + getConditions(depth, filter)
+                + " AND d.gid = g.genotypeId ORDER BY " + getColumn(sort)
+                + (ascending ? " ASC" : " DESC");
+    }
+
+    private static <T> TypedQuery<T> createQuery(EntityManager em,
+            String name, String jpql, Class<T> resultClass) {
+        try {
+            return em.createNamedQuery(name, resultClass);
+        } catch (IllegalArgumentException e) {
+            em.getEntityManagerFactory()
+                    .addNamedQuery(name, em.createQuery(jpql, resultClass));
+            return em.createNamedQuery(name, resultClass);
+        }
+    }
+
+    /* the depth is the number of scope parameters that are set */
+    private static void setScope(TypedQuery<?> q, Integer[] scope, int depth) {
+        for (int i = 0; i < depth; ++i) {
+            q.setParameter(SCOPE[i], scope[i]);
+        }
+    }
+
+    /* number of leading scope parameters that are set; a parameter is
+     * ignored unless all of the wider ones are set */
+    public static int getDepth(Integer[] scope) {
+        int depth = 0;
+        while (depth < scope.length
+                && scope[depth] != null && scope[depth] != -1) {
+            ++depth;
+        }
+        return depth;
+    }
+
+    /* counts the issues that the select queries return */
+    public static TypedQuery<Long> createCountQuery(EntityManager em,
+            Integer[] scope, int filter) {
+        int depth = getDepth(scope);
+        filter &= FILTER_MASK;
+        TypedQuery<Long> q = createQuery(em, getCountName(depth, filter),
+                getCountQuery(depth, filter), Long.class);
+        setScope(q, scope, depth);
+        return q;
+    }
+
+    /* the sort must have been checked with isSortable() */
+    public static TypedQuery<AnIssue> createSelectQuery(EntityManager em,
+            Integer[] scope, int filter, String sort, boolean ascending) {
+        int depth = getDepth(scope);
+        filter &= FILTER_MASK;
+        TypedQuery<AnIssue> q = createQuery(em,
+                getSelectName(depth, filter, sort, ascending),
+                getSelectQuery(depth, filter, sort, ascending),
+                AnIssue.class);
+        setScope(q, scope, depth);
+        return q;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.persistence;
+
+/**
+ * The conditions that select the data contexts shown in the QC tool.
+ *
+ * A data context (DataContext d) is shown only if it has measurements, its
+ * parameter can be plotted and is not procedure meta-data, and its
+ * procedure is not ignored. Parameter 2100 is only shown in procedure 103.
+ * The states and number of unresolved issues of the genes/strains
+ * (GeneStrain.findByCentrePipeline and GeneStrainRollup), procedures and
+ * parameters are aggregated over these contexts only, so that they all
+ * agree with each other. Since these are compile-time constants, they can
+ * also be used in annotations.
+ *
+ * @author agent <agent@local>
+ */
+public class DataContextQueries {
+
+    /* the joins required by VISIBLE, as in "FROM DataContext d " + JOINS */
+    public static final String JOINS = "join Parameter q on (q.parameterId = d.qid) left join IgnoreProcedures ip on (ip.procedureId = d.pid)";
+
+    /* conditions on d, to be ANDed with the scope conditions */
+    public static final String VISIBLE = "d.numMeasurements > 0 AND q.graphType IS NOT NULL and ip.procedureId is null AND (d.qid != 2100 or (d.pid = 103 AND d.qid = 2100)) AND q.type != 'procedureMetadata'";
+
+    private DataContextQueries() {
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.persistence;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+/**
+ * Binds at most one entity manager for each persistence unit to a request.
+ *
+ * While a request is being processed, every call to getEntityManager()
+ * with the same factory returns the same entity manager, so that a facade
+ * does not open a new database connection for every lookup. Facades still
+ * call close() on the returned entity manager when they have finished a
+ * unit of work; this clears the persistence context (unless a transaction
+ * is active), so that the entities loaded by one unit of work are detached
+ * and not kept for the rest of the request, but the entity manager stays
+ * open. The entity managers are closed when the request has been completed.
+ *
+ * Since the bound entity manager holds one connection, it must not be used
+ * for a streaming database cursor that is read while other queries are run
+ * (see StreamingPack); use a separate, unbound entity manager for that.
+ *
+ * Outside of a request (e.g., in background tasks) a new entity manager is
+ * returned, which must be closed by the caller.
+ *
+ * @author agent <agent@local>
+ */
+public class EntityManagerFilter implements Filter {
+
+    private static final ThreadLocal<Map<EntityManagerFactory, EntityManager>> bound
+            = new ThreadLocal<>();
+
+    private static class NonClosingHandler implements InvocationHandler {
+
+        private final EntityManager em;
+
+        NonClosingHandler(EntityManager em) {
+            this.em = em;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            if ("close".equals(method.getName())
+                    && method.getParameterTypes().length == 0) {
+                if (em.isOpen() && !em.getTransaction().isActive()) {
+                    em.clear();
+                }
+                return null;
+            }
+            try {
+                return method.invoke(em, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    public static EntityManager getEntityManager(EntityManagerFactory emf) {
+        Map<EntityManagerFactory, EntityManager> ems = bound.get();
+        if (ems == null) {
+            return emf.createEntityManager();
+        }
+        EntityManager em = ems.get(emf);
+        if (em == null) {
+            em = (EntityManager) Proxy.newProxyInstance(
+                    EntityManager.class.getClassLoader(),
+                    new Class<?>[]{EntityManager.class},
+                    new NonClosingHandler(emf.createEntityManager()));
+            ems.put(emf, em);
+        }
+        return em;
+    }
+
+    private void release(Map<EntityManagerFactory, EntityManager> ems) {
+        for (EntityManager em : ems.values()) {
+            try {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+            } catch (Exception e) {
+                System.err.println(e.getMessage());
+            }
+            NonClosingHandler h
+                    = (NonClosingHandler) Proxy.getInvocationHandler(em);
+            if (h.em.isOpen()) {
+                h.em.close();
+            }
+        }
+    }
+
+    @Override
+    public void init(FilterConfig config) throws ServletException {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response,
+            FilterChain chain) throws IOException, ServletException {
+        Map<EntityManagerFactory, EntityManager> ems = new HashMap<>();
+        bound.set(ems);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            bound.remove();
+            release(ems);
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
@@ -31,8 +31,18 @@ public class PersistenceListener implements ServletContextListener {
         PersistenceManager pm
                 = (PersistenceManager) ctx.getAttribute("PersistenceManager");
         if (pm == null) {
-            ctx.setAttribute("PersistenceManager", new PersistenceManager());
-    }
+            pm = new PersistenceManager();
+            ctx.setAttribute("PersistenceManager", pm);
+        }
+
+        /* parse the specimen queries now, instead of on the first request;
+         * if this fails, they will be registered when they are first used */
+        try {
+            ProcedureSpecimenQueries.register(pm.getEntityManagerFactory());
+        } catch (Exception e) {
+            System.err.println("Unable to register specimen queries: "
+                    + e.getMessage());
+        }
     }
 
     @Override
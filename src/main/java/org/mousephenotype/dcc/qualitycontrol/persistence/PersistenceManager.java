@@ -15,10 +15,29 @@
  */
 package org.mousephenotype.dcc.qualitycontrol.persistence;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.DataSourceFactory;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.eclipse.persistence.config.PersistenceUnitProperties;
 
 /**
+ * Creates the entity manager factories for the QC and Drupal persistence
+ * units.
+ *
+ * Each persistence unit gets its connections from a Tomcat JDBC connection
+ * pool, which is configured in connectionpool.properties. The pools are
+ * registered with the platform MBean server, and their current usage is
+ * also available from the connection pool web service.
  *
  * @author Gagarine Yaikhom <g.yaikhom@har.mrc.ac.uk>
  */
@@ -26,30 +45,45 @@ public class PersistenceManager {
 
     protected EntityManagerFactory emf;
     protected EntityManagerFactory drupalEmf;
+    protected DataSource pool;
+    protected DataSource drupalPool;
 
     private static final String persistenceUnit = "org.mousephenotype.dcc.qualitycontrol.entities.qc.pu";
     private static final String drupalPersistenceUnit = "org.mousephenotype.dcc.qualitycontrol.entities.drupal.pu";
+    private static final String poolConfiguration = "/connectionpool.properties";
+    private static final String poolMBeanName = "org.mousephenotype.dcc.qualitycontrol:type=ConnectionPool,name=";
     public PersistenceManager() {
     }
 
-    public EntityManagerFactory getEntityManagerFactory() {
+    public synchronized EntityManagerFactory getEntityManagerFactory() {
         if (emf == null) {
             createEntityManagerFactory();
         }
         return emf;
     }
 
-    public EntityManagerFactory getDrupalEntityManagerFactory() {
+    public synchronized EntityManagerFactory getDrupalEntityManagerFactory() {
         if (drupalEmf == null) {
             createDrupalEntityManagerFactory();
         }
         return drupalEmf;
     }
 
+    /* null if the persistence unit has not been used yet */
+    public DataSource getConnectionPool() {
+        return pool;
+    }
+
+    public DataSource getDrupalConnectionPool() {
+        return drupalPool;
+    }
+
     public void closeEntityManagerFactory() {
         if (emf != null) {
             emf.close();
             emf = null;
+            closeConnectionPool(pool, "qc");
+            pool = null;
             System.out.println("Persistence unit '"
                     + persistenceUnit
                     + "' was closed at " + new java.util.Date());
@@ -60,23 +94,98 @@ public class PersistenceManager {
         if (drupalEmf != null) {
             drupalEmf.close();
             drupalEmf = null;
+            closeConnectionPool(drupalPool, "drupal");
+            drupalPool = null;
             System.out.println("Drupal persistence unit '"
                     + drupalPersistenceUnit
                     + "' was closed at " + new java.util.Date());
         }
     }
 
+    /* returns the pool attributes that start with the given prefix, with
+     * the prefix removed */
+    private Properties getPoolProperties(String prefix) {
+        Properties all = new Properties();
+        try (InputStream in = PersistenceManager.class
+                .getResourceAsStream(poolConfiguration)) {
+            if (in != null) {
+                all.load(in);
+            } else {
+                System.err.println("Missing connection pool configuration "
+                        + poolConfiguration);
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+        Properties p = new Properties();
+        prefix += ".";
+        for (String key : all.stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                p.setProperty(key.substring(prefix.length()),
+                        all.getProperty(key).trim());
+            }
+        }
+        return p;
+    }
+
+    private DataSource createConnectionPool(String name) {
+        PoolConfiguration c = DataSourceFactory
+                .parsePoolProperties(getPoolProperties(name));
+        c.setName(name);
+        DataSource ds = new DataSource(c);
+        if (c.isJmxEnabled()) {
+            try {
+                ds.createPool();
+                MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+                ObjectName on = new ObjectName(poolMBeanName + name);
+                if (!mbs.isRegistered(on)) {
+                    mbs.registerMBean(ds.getPool().getJmxPool(), on);
+                }
+            } catch (Exception e) {
+                System.err.println("Could not register connection pool '"
+                        + name + "': " + e.getMessage());
+            }
+        }
+        return ds;
+    }
+
+    private void closeConnectionPool(DataSource ds, String name) {
+        if (ds == null) {
+            return;
+        }
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName on = new ObjectName(poolMBeanName + name);
+            if (mbs.isRegistered(on)) {
+                mbs.unregisterMBean(on);
+            }
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+        }
+        ds.close(true);
+    }
+
+    private Map<String, Object> getUnitProperties(DataSource ds) {
+        Map<String, Object> p = new HashMap<>();
+        p.put(PersistenceUnitProperties.NON_JTA_DATASOURCE, ds);
+        return p;
+    }
+
     protected void createEntityManagerFactory() {
-        emf = Persistence.createEntityManagerFactory(persistenceUnit);
+        pool = createConnectionPool("qc");
+        emf = Persistence.createEntityManagerFactory(persistenceUnit,
+                getUnitProperties(pool));
         System.out.println("Persistence unit '"
                 + persistenceUnit
                 + "' was created at " + new java.util.Date());
     }
 
     protected void createDrupalEntityManagerFactory() {
-        drupalEmf = Persistence.createEntityManagerFactory(drupalPersistenceUnit);
+        drupalPool = createConnectionPool("drupal");
+        drupalEmf = Persistence.createEntityManagerFactory(drupalPersistenceUnit,
+                getUnitProperties(drupalPool));
         System.out.println("Drupal persistence unit '"
                 + drupalPersistenceUnit
                 + "' was created at " + new java.util.Date());
-}
+    }
 }
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.persistence;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import org.mousephenotype.dcc.qualitycontrol.entities.ProcedureSpecimen;
+
+/**
+ * Named queries for listing the specimens that took part in a procedure
+ * (see ProcedureSpecimenFacadeREST).
+ *
+ * There is one count query for every filter, and one select query for
+ * every combination of sort column, sort direction, filter, uniqueness and
+ * keyset paging. They are all registered with the entity manager factory
+ * when the web application starts, so that the JPQL is only parsed once.
+ * If a query has not been registered, it is registered when it is first
+ * used.
+ *
+ * @author agent <agent@local>
+ */
+public class ProcedureSpecimenQueries {
+
+    public enum Filter {
+
+        NONE(""),
+        ANIMAL_ID(" AND pao.animalId = :aid"),
+        ANIMAL_IDS(" AND pao.animalId IN :aids"),
+        ANIMAL_NAME(" AND pao.animalName like :aname");
+        final String condition;
+
+        Filter(String condition) {
+            this.condition = condition;
+        }
+    }
+
+    /* keyset paging: the sort value of the last record the client has is
+     * either null, or a value */
+    public enum Keyset {
+
+        NONE, AFTER_NULL, AFTER_VALUE
+    }
+
+    public static final String DEFAULT_SORT = "sd";
+
+    /* sort keys used by the client, and the columns they correspond to */
+    private static final Map<String, String> columns = new LinkedHashMap<>();
+
+    static {
+        columns.put("ai", "pao.animalId");
+        columns.put("oi", "pao.procedureOccurrenceId");
+        columns.put("n", "ao.animalName");
+        columns.put("c", "ao.cohortName");
+        columns.put("s", "pao.sex");
+        columns.put("z", "pao.zygosity");
+        columns.put("d", "ao.dob");
+        columns.put("l", "ao.litter");
+        columns.put("p", "pao.pipeline");
+        columns.put("e", "pao.experimenter");
+        columns.put("sd", "pao.startDate");
+        columns.put("en", "pao.equipmentname");
+        columns.put("em", "pao.equipmentmodel");
+        columns.put("et", "pao.equipmentmanufacturer");
+    }
+
+    private static final String FROM = "FROM ProcedureAnimalOverview pao, AnimalOverview ao, Pipeline l WHERE pao.animalId = ao.animalId AND pao.pipeline = l.pipelineKey AND pao.centreId = :cid AND l.pipelineId = :lid AND pao.genotypeId = :gid AND pao.strainId = :sid AND pao.procedureId = :peid";
+    private static final String SELECT = "SELECT new org.mousephenotype.dcc.qualitycontrol.entities.ProcedureSpecimen(ao.animalId, pao.procedureOccurrenceId, ao.animalName, ao.cohortName, pao.sex, pao.zygosity, ao.dob, ao.litter, pao.pipeline, pao.experimenter, pao.startDate, pao.equipmentname, pao.equipmentmodel, pao.equipmentmanufacturer) ";
+    private static final String SELECT_UNIQUE = "SELECT new org.mousephenotype.dcc.qualitycontrol.entities.ProcedureSpecimen(ao.animalId, pao.procedureOccurrenceId, ao.animalName, ao.cohortName, pao.sex, pao.zygosity, ao.dob, ao.litter, pao.pipeline, pao.experimenter, MIN(pao.startDate), pao.equipmentname, pao.equipmentmodel, pao.equipmentmanufacturer) ";
+
+    private ProcedureSpecimenQueries() {
+    }
+
+    public static boolean isSortable(String sort) {
+        return sort != null && columns.containsKey(sort);
+    }
+
+    /* true if the sort column is in AnimalOverview */
+    public static boolean isAnimalOverviewColumn(String sort) {
+        return columns.get(sort).startsWith("ao.");
+    }
+
+    /* the attribute (without the entity alias) of the sort column */
+    public static String getSortAttribute(String sort) {
+        String column = columns.get(sort);
+        return column.substring(column.indexOf('.') + 1);
+    }
+
+    private static String getCountName(Filter filter, boolean unique) {
+        return "ProcedureSpecimen.count." + filter + (unique ? ".unique" : "");
+    }
+
+    private static String getCountQuery(Filter filter, boolean unique) {
+        return "SELECT count(" + (unique ? "distinct" : "") + " pao.animalId) "
+                + FROM + filter.condition;
+    }
+
+    private static String getSelectName(String sort, boolean ascending,
+            Filter filter, boolean unique, Keyset keyset) {
+        return "ProcedureSpecimen.select." + sort
+                + (ascending ? ".ASC." : ".DESC.") + filter
+                + (unique ? ".unique" : "") + "." + keyset;
+    }
+
+    private static String getSelectQuery(String sort, boolean ascending,
+            Filter filter, boolean unique, Keyset keyset) {
+        String column = columns.get(sort);
+        String dir = ascending ? " ASC" : " DESC";
+        StringBuilder q = new StringBuilder(unique ? SELECT_UNIQUE : SELECT);
+        q.append(FROM).append(filter.condition);
+
+        if (keyset != Keyset.NONE) {
+            String op = ascending ? " > " : " < ";
+            String next = "(pao.animalId" + op + ":aa OR (pao.animalId = :aa"
+                    + " AND pao.procedureOccurrenceId" + op + ":ao))";
+            // MySQL sorts nulls first in ascending order
+            if (keyset == Keyset.AFTER_NULL) {
+                q.append(ascending
+                        ? " AND (" + column + " IS NOT NULL OR " + next + ")"
+                        : " AND (" + column + " IS NULL AND " + next + ")");
+            } else {
+                q.append(" AND (").append(column).append(op).append(":ak");
+                if (!ascending) {
+                    q.append(" OR ").append(column).append(" IS NULL");
+                }
+                q.append(" OR (").append(column).append(" = :ak AND ")
+                        .append(next).append("))");
+            }
+        }
+
+        if (unique) {
+            q.append(" GROUP BY pao.animalId");
+        }
+        q.append(" ORDER BY ").append(column).append(dir);
+        if (!unique) {
+            // a unique order is required for keyset paging
+            q.append(", pao.animalId").append(dir);
+            q.append(", pao.procedureOccurrenceId").append(dir);
+        }
+        return q.toString();
+    }
+
+    private static <T> TypedQuery<T> createQuery(EntityManager em,
+            String name, String jpql, Class<T> resultClass) {
+        try {
+            return em.createNamedQuery(name, resultClass);
+        } catch (IllegalArgumentException e) {
+            em.getEntityManagerFactory()
+                    .addNamedQuery(name, em.createQuery(jpql, resultClass));
+            return em.createNamedQuery(name, resultClass);
+        }
+    }
+
+    public static TypedQuery<Long> createCountQuery(EntityManager em,
+            Filter filter, boolean unique) {
+        return createQuery(em, getCountName(filter, unique),
+                getCountQuery(filter, unique), Long.class);
+    }
+
+    /* keyset paging is not supported for unique specimens */
+    public static TypedQuery<ProcedureSpecimen> createSelectQuery(
+            EntityManager em, String sort, boolean ascending,
+            Filter filter, boolean unique, Keyset keyset) {
+        return createQuery(em,
+                getSelectName(sort, ascending, filter, unique, keyset),
+                getSelectQuery(sort, ascending, filter, unique, keyset),
+                ProcedureSpecimen.class);
+    }
+
+    public static void register(EntityManagerFactory emf) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            for (Filter filter : Filter.values()) {
+                for (boolean unique : new boolean[]{false, true}) {
+                    emf.addNamedQuery(getCountName(filter, unique),
+                            em.createQuery(getCountQuery(filter, unique), Long.class));
+                    for (String sort : columns.keySet()) {
+                        for (boolean ascending : new boolean[]{true, false}) {
+                            for (Keyset keyset : Keyset.values()) {
+                                if (unique && keyset != Keyset.NONE) {
+                                    continue;
+                                }
+                                emf.addNamedQuery(
+                                        getSelectName(sort, ascending, filter, unique, keyset),
+                                        em.createQuery(getSelectQuery(sort, ascending, filter, unique, keyset),
+                                                ProcedureSpecimen.class));
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.mousephenotype.dcc.qualitycontrol.webservice;
 import java.util.ArrayList;
 import javax.ejb.Stateless;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
@@ -70,4 +71,15 @@ public class AUserFacadeREST extends AbstractFacade<AUser> {
         }
         return p;
     }
+
+    /* Drupal should call this when a user logs out, so that the session
+     * is checked against the database again instead of being accepted
+     * from the session cache until the cached entry expires. */
+    @POST
+    @Path("invalidate")
+    public void invalidate(
+            @QueryParam("s") String sessionId,
+            @QueryParam("u") Integer userId) {
+        invalidateSession(sessionId, userId);
+    }
 }
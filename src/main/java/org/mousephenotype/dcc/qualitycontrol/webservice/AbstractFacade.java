@@ -15,6 +15,7 @@
  */
 package org.mousephenotype.dcc.qualitycontrol.webservice;
 
+import java.util.Collection;
 import java.util.List;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -24,7 +25,13 @@ import javax.persistence.criteria.Root;
 import javax.servlet.ServletContext;
 import javax.ws.rs.core.Context;
 import org.mousephenotype.dcc.entities.qc.AUser;
+import org.mousephenotype.dcc.entities.qc.DataContext;
 import org.mousephenotype.dcc.entities.qc.Sessions;
+import org.mousephenotype.dcc.qualitycontrol.cache.GeneStrainRollup;
+import org.mousephenotype.dcc.qualitycontrol.cache.IssueSummary;
+import org.mousephenotype.dcc.qualitycontrol.cache.SessionCache;
+import org.mousephenotype.dcc.qualitycontrol.cache.UserDirectory;
+import org.mousephenotype.dcc.qualitycontrol.persistence.EntityManagerFilter;
 import org.mousephenotype.dcc.qualitycontrol.persistence.PersistenceManager;
 
 /**
@@ -41,20 +48,110 @@ public abstract class AbstractFacade<T> {
         this.entityClass = entityClass;
     }
 
+    /* Returns the servlet context, which holds the application-wide
+     * caches (see CacheListener). */
+    protected ServletContext getServletContext() {
+        return context;
+    }
+
+    protected PersistenceManager getPersistenceManager() {
+        return (PersistenceManager) context.getAttribute("PersistenceManager");
+    }
+
+    /* During a request, these return the entity manager that is bound to
+     * the request (see EntityManagerFilter). */
     protected EntityManager getEntityManager() {
-        PersistenceManager pm
-                = (PersistenceManager) context.getAttribute("PersistenceManager");
-        EntityManagerFactory emf = pm.getEntityManagerFactory();
-        emf.getCache().evictAll();
-        return emf.createEntityManager();
+        EntityManagerFactory emf
+                = getPersistenceManager().getEntityManagerFactory();
+        return EntityManagerFilter.getEntityManager(emf);
+    }
+
+    /* Returns a new entity manager that is not bound to the request, for
+     * work that outlives the facade call or must not share its connection,
+     * e.g., a database cursor that is read while the response is written
+     * (see StreamingPack). The caller must close it. */
+    protected EntityManager createEntityManager() {
+        return getPersistenceManager().getEntityManagerFactory()
+                .createEntityManager();
     }
 
     protected EntityManager getDrupalEntityManager() {
-        PersistenceManager pm
-                = (PersistenceManager) context.getAttribute("PersistenceManager");
-        EntityManagerFactory emf = pm.getDrupalEntityManagerFactory();
-        emf.getCache().evictAll();
-        return emf.createEntityManager();
+        EntityManagerFactory emf
+                = getPersistenceManager().getDrupalEntityManagerFactory();
+        return EntityManagerFilter.getEntityManager(emf);
+    }
+
+    /* Removes an entity from the shared cache after it was written, so that
+     * the next read goes back to the database. Reference data is cached
+     * with an expiry (see eclipselink-orm.xml), so only the entities that
+     * are modified by the QC tool need to be evicted. */
+    protected void evict(Class<?> cls, Object id) {
+        if (id != null) {
+            getPersistenceManager().getEntityManagerFactory()
+                    .getCache().evict(cls, id);
+        }
+    }
+
+    protected void evict(Object entity) {
+        if (entity != null) {
+            EntityManagerFactory emf
+                    = getPersistenceManager().getEntityManagerFactory();
+            Object id = emf.getPersistenceUnitUtil().getIdentifier(entity);
+            if (id != null) {
+                emf.getCache().evict(entity.getClass(), id);
+            }
+        }
+    }
+
+    /* returns null if there is no issue summary */
+    protected IssueSummary getIssueSummary() {
+        return (IssueSummary) context.getAttribute("IssueSummary");
+    }
+
+    /* Must be called after an issue has been raised or changed, once the
+     * transaction has been committed (see IssueSummary). */
+    protected void updateSummary(EntityManager em, Long issueId) {
+        IssueSummary summary = getIssueSummary();
+        if (summary != null) {
+            try {
+                summary.update(em, issueId);
+            } catch (Exception e) {
+                System.err.println("Failed to update summary for issue "
+                        + issueId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /* returns null if there are no gene/strain rollups */
+    protected GeneStrainRollup getGeneStrainRollup() {
+        return (GeneStrainRollup) context.getAttribute("GeneStrainRollup");
+    }
+
+    /* Must be called after data contexts have been changed by the QC
+     * tool, once the transaction has been committed, so that the
+     * gene/strain rollups stay up to date (see GeneStrainRollup). */
+    protected void updateRollups(EntityManager em, Collection<Long> contextIds) {
+        GeneStrainRollup rollup = getGeneStrainRollup();
+        if (rollup != null) {
+            try {
+                rollup.update(em, contextIds);
+            } catch (Exception e) {
+                System.err.println("Failed to update gene/strain rollups: "
+                        + e.getMessage());
+            }
+        }
+    }
+
+    protected void updateRollups(EntityManager em, DataContext dataContext) {
+        GeneStrainRollup rollup = getGeneStrainRollup();
+        if (rollup != null) {
+            try {
+                rollup.update(em, dataContext);
+            } catch (Exception e) {
+                System.err.println("Failed to update gene/strain rollups: "
+                        + e.getMessage());
+            }
+        }
     }
 
     public void create(T entity) {
@@ -64,6 +161,7 @@ public abstract class AbstractFacade<T> {
         em.getTransaction().commit();
         em.refresh(entity);
         em.close();
+        evict(entity);
     }
 
     public void edit(T entity) {
@@ -73,6 +171,7 @@ public abstract class AbstractFacade<T> {
         em.getTransaction().commit();
         em.refresh(entity);
         em.close();
+        evict(entity);
     }
 
     public void remove(T entity) {
@@ -84,68 +183,127 @@ public abstract class AbstractFacade<T> {
         em.remove(entity);
         em.getTransaction().commit();
         em.close();
+        evict(entity);
     }
 
+    /* The following close the entity manager they use even if the query
+     * fails, so that they do not leak one when they are called outside of
+     * a request, where getEntityManager() returns a new entity manager. */
     public T find(Object id) {
         EntityManager em = getEntityManager();
-        T returnValue = em.find(entityClass, id);
-        em.close();
-        return returnValue;
+        try {
+            return em.find(entityClass, id);
+        } finally {
+            em.close();
+        }
     }
 
     public List<T> findAll() {
         EntityManager em = getEntityManager();
-        CriteriaQuery<T> cq = em.getCriteriaBuilder().createQuery(entityClass);
-        cq.select(cq.from(entityClass));
-        List<T> returnValue = em.createQuery(cq).getResultList();
-        em.close();
-        return returnValue;
+        try {
+            CriteriaQuery<T> cq = em.getCriteriaBuilder().createQuery(entityClass);
+            cq.select(cq.from(entityClass));
+            return em.createQuery(cq).getResultList();
+        } finally {
+            em.close();
+        }
     }
 
     public List<T> findRange(int[] range) {
         EntityManager em = getEntityManager();
-        CriteriaQuery<T> cq = em.getCriteriaBuilder().createQuery(entityClass);
-        cq.select(cq.from(entityClass));
-        TypedQuery<T> q = getEntityManager().createQuery(cq);
-        q.setMaxResults(range[1] - range[0]);
-        q.setFirstResult(range[0]);
-        List<T> returnValue = q.getResultList();
-        em.close();
-        return returnValue;
+        try {
+            CriteriaQuery<T> cq = em.getCriteriaBuilder().createQuery(entityClass);
+            cq.select(cq.from(entityClass));
+            TypedQuery<T> q = em.createQuery(cq);
+            q.setMaxResults(range[1] - range[0]);
+            q.setFirstResult(range[0]);
+            return q.getResultList();
+        } finally {
+            em.close();
+        }
     }
 
     public Long count() {
         EntityManager em = getEntityManager();
-        CriteriaQuery<Long> cq = em.getCriteriaBuilder().createQuery(Long.class);
-        Root<T> rt = cq.from(entityClass);
-        cq.select(getEntityManager().getCriteriaBuilder().count(rt));
-        TypedQuery<Long> q = getEntityManager().createQuery(cq);
-        Long returnValue = q.getSingleResult();
-        em.close();
-        return returnValue;
+        try {
+            CriteriaQuery<Long> cq = em.getCriteriaBuilder().createQuery(Long.class);
+            Root<T> rt = cq.from(entityClass);
+            cq.select(em.getCriteriaBuilder().count(rt));
+            return em.createQuery(cq).getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    private SessionCache getSessionCache() {
+        return (SessionCache) context.getAttribute("SessionCache");
     }
 
+    /* Returns the display name of a Drupal user, or null if the user does
+     * not exist. The names are served from the UserDirectory. */
+    protected String getUserName(Integer userId) {
+        UserDirectory ud = (UserDirectory) context.getAttribute("UserDirectory");
+        if (ud != null) {
+            return ud.getName(userId);
+        }
+        String name = null;
+        EntityManager em = getDrupalEntityManager();
+        try {
+            AUser u = em.find(AUser.class, userId);
+            if (u != null) {
+                name = u.toString();
+            }
+        } catch (Exception e) {
+            System.err.println("Unable to find user with id "
+                    + userId + " in Drupal database.");
+        } finally {
+            em.close();
+        }
+        return name;
+    }
+
+    /* Validating a session requires two queries to the Drupal database, so
+     * we remember the result for a short period (see SessionCache). */
     public boolean isValidSession(String sessionId, Integer userId) {
+        if (sessionId == null || sessionId.isEmpty()) {
+            return false;
+        }
+        SessionCache cache = getSessionCache();
+        if (cache != null) {
+            Boolean isValid = cache.get(sessionId, userId);
+            if (isValid != null) {
+                return isValid;
+            }
+        }
         boolean returnValue = false;
-        if (sessionId != null && !sessionId.isEmpty()) {
-            EntityManager em = getDrupalEntityManager();
-            AUser user = em.find(AUser.class, userId);
-            if (user != null) {
-                TypedQuery<Sessions> sessionsQuery =
-                        em.createNamedQuery("Sessions.findByUidSid",
-                        Sessions.class);
-                sessionsQuery.setParameter("uid", userId);
-                sessionsQuery.setParameter("sid", sessionId);
-                try {
-                    List<Sessions> activeSessions = sessionsQuery.getResultList();
-                    if (!activeSessions.isEmpty()) {
-                        returnValue = true;
-                    }
-                } catch (Exception e) {
+        EntityManager em = getDrupalEntityManager();
+        AUser user = em.find(AUser.class, userId);
+        if (user != null) {
+            TypedQuery<Sessions> sessionsQuery =
+                    em.createNamedQuery("Sessions.findByUidSid",
+                    Sessions.class);
+            sessionsQuery.setParameter("uid", userId);
+            sessionsQuery.setParameter("sid", sessionId);
+            try {
+                List<Sessions> activeSessions = sessionsQuery.getResultList();
+                if (!activeSessions.isEmpty()) {
+                    returnValue = true;
                 }
+            } catch (Exception e) {
             }
-            em.close();
+        }
+        em.close();
+        if (cache != null) {
+            cache.put(sessionId, userId, returnValue);
         }
         return returnValue;
     }
+
+    /* forget the cached validation, e.g., when the user logs out */
+    public void invalidateSession(String sessionId, Integer userId) {
+        SessionCache cache = getSessionCache();
+        if (cache != null) {
+            cache.invalidate(sessionId, userId);
+        }
+    }
 }
@@ -32,7 +32,6 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import org.eclipse.persistence.exceptions.DatabaseException;
-import org.mousephenotype.dcc.entities.qc.AUser;
 import org.mousephenotype.dcc.entities.qc.AnAction;
 import org.mousephenotype.dcc.entities.qc.AnIssue;
 import org.mousephenotype.dcc.entities.qc.DataContext;
@@ -104,6 +103,11 @@ public class AnActionFacadeREST extends AbstractFacade<AnAction> {
             }
             em.getTransaction().commit();
             em.refresh(action);
+            evict(context);
+            evict(action.getIssueId());
+            evict(action);
+            updateSummary(em, action.getIssueId().getId());
+            updateRollups(em, context);
         } catch (DatabaseException e) {
             action = null;
         }
@@ -157,6 +161,13 @@ public class AnActionFacadeREST extends AbstractFacade<AnAction> {
                 em.flush();
             }
             em.getTransaction().commit();
+            evict(context);
+            evict(issue);
+            for (History history : historyEntries) {
+                evict(history);
+            }
+            updateSummary(em, issue.getId());
+            updateRollups(em, context);
         } catch (DatabaseException e) {
             action = null;
         }
@@ -183,35 +194,19 @@ public class AnActionFacadeREST extends AbstractFacade<AnAction> {
         return action;
     }
 
-    private AUser getUser(Integer id) {
-        EntityManager em = getDrupalEntityManager();
-        AUser r = null;
-        try {
-            r = em.find(AUser.class, id);
-        } catch (Exception e) {
-            System.err.println("Unable to find user with id "
-                    + id + " in Drupal database.");
-        } finally {
-            em.close();
-        }
-        return r;
-    }
-
     private AnActionResponse prepareActionResponse(AnAction action) {
         AnActionResponse returnValue = null;
         if (action != null) {
-            EntityManager em = getEntityManager();
-            AUser actionedBy = getUser(action.getActionedBy());
+            String actionedBy = getUserName(action.getActionedBy());
             if (actionedBy == null) {
                 System.err.println("Failed to retrieve action details from database");
             } else {
                 returnValue = new AnActionResponse(action.getId(),
                         action.getDescription(),
-                        actionedBy.toString(),
+                        actionedBy,
                         action.getActionType().getShortName(),
                         action.getLastUpdate().getTime());
             }
-            em.close();
         }
         return returnValue;
     }
@@ -16,16 +16,17 @@
 package org.mousephenotype.dcc.qualitycontrol.webservice;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Predicate;
-import javax.persistence.criteria.Root;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -39,18 +40,17 @@ import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
 import org.eclipse.persistence.exceptions.DatabaseException;
 import org.mousephenotype.dcc.entities.impress.Parameter;
-import org.mousephenotype.dcc.entities.impress.Procedure;
-import org.mousephenotype.dcc.entities.overviews.Genotype;
 import org.mousephenotype.dcc.entities.overviews.MeasurementsPerformed;
 import org.mousephenotype.dcc.entities.qc.AState;
-import org.mousephenotype.dcc.entities.qc.AUser;
 import org.mousephenotype.dcc.entities.qc.AnAction;
 import org.mousephenotype.dcc.entities.qc.AnIssue;
 import org.mousephenotype.dcc.entities.qc.CitedDataPoint;
 import org.mousephenotype.dcc.entities.qc.DataContext;
 import org.mousephenotype.dcc.entities.qc.History;
+import org.mousephenotype.dcc.qualitycontrol.cache.IssueSummary;
 import org.mousephenotype.dcc.qualitycontrol.entities.AnIssueRequest;
 import org.mousephenotype.dcc.qualitycontrol.entities.AnIssueResponse;
+import org.mousephenotype.dcc.qualitycontrol.persistence.AnIssueQueries;
 import org.mousephenotype.dcc.qualitycontrol.webservice.pack.AnIssuePack;
 
 /**
@@ -61,34 +61,6 @@ import org.mousephenotype.dcc.qualitycontrol.webservice.pack.AnIssuePack;
 @Path("issues")
 public class AnIssueFacadeREST extends AbstractFacade<AnIssue> {
 
-    private static final String CID = "cid"; // centre id
-    private static final String LID = "lid"; // pipeline id
-    private static final String GID = "gid"; // genotype id
-    private static final String SID = "sid"; // strain id
-    private static final String PID = "pid"; // procedure id
-    private static final String QID = "qid"; // parameter id
-    private static final String NAME = "name"; // name (procedure/parameter)
-    private static final String KEY = "parameterKey"; // parameter key
-    private static final String NUM_MEASUREMENTS = "numMeasurements";
-    private static final String ISSUE_STATUS = "status";
-
-    /* These must match the values in the web-app (Viewport.js) */
-    private static final Integer INCLUDE_NEW_ISSUES = 0x1;
-    private static final Integer INCLUDE_ACCEPTED_ISSUES = 0x2;
-    private static final Integer INCLUDE_RESOLVED_ISSUES = 0x4;
-    private static final Integer INCLUDE_DATAADDED_ISSUES = 0x8;
-    private static final Integer INCLUDE_DATAREMOVED_ISSUES = 0x10;
-    private static final Integer INCLUDE_DATACHANGED_ISSUES = 0x20;
-    private static final Integer INCLUDE_NODATA_ISSUES = 0x40;
-
-    /* Thes are consistent identifiers (cid) from phenodcc_qc.issue_status */
-    private static final Integer NEW_ISSUE = 0;
-    private static final Integer ACCEPTED_ISSUE = 1;
-    private static final Integer RESOLVED_ISSUE = 4;
-    private static final Integer DATAADDED_ISSUE = 6;
-    private static final Integer DATAREMOVED_ISSUE = 7;
-    private static final Integer DATACHANGED_ISSUE = 8;
-
     /* the following must match consistent identifiers in the database */
     private static final int HAS_ISSUES = 5;
 
@@ -96,21 +68,35 @@ public class AnIssueFacadeREST extends AbstractFacade<AnIssue> {
         super(AnIssue.class);
     }
 
-    private MeasurementsPerformed getMeasurementPerformed(
-            Integer measurementId, DataContext context) {
-        EntityManager em = getEntityManager();
+    /* Resolves all of the cited measurements in the data context with one
+     * query. A measurement may have several rows, so only the first row for
+     * each measurement is returned. */
+    private List<MeasurementsPerformed> getMeasurementsPerformed(
+            EntityManager em, Integer[] measurementIds, DataContext context) {
+        Set<Integer> ids = new HashSet<>(Arrays.asList(measurementIds));
+        ids.remove(null);
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
         Parameter p = em.find(Parameter.class, context.getQid());
-        TypedQuery<MeasurementsPerformed> query
-                = em.createNamedQuery("MeasurementsPerformed.findByMeasurementIdContext",
-                        MeasurementsPerformed.class);
-        query.setParameter("measurementId", measurementId);
-        query.setParameter(CID, context.getCid());
-        query.setParameter(GID, context.getGid());
-        query.setParameter(SID, context.getSid());
+        TypedQuery<MeasurementsPerformed> query = em.createQuery(
+                "SELECT m FROM MeasurementsPerformed m "
+                + "WHERE m.measurementId IN :measurementIds "
+                + "AND m.centreId = :cid AND m.genotypeId = :gid "
+                + "AND m.strainId = :sid AND m.parameterId = :qeid",
+                MeasurementsPerformed.class);
+        query.setParameter("measurementIds", ids);
+        query.setParameter("cid", context.getCid());
+        query.setParameter("gid", context.getGid());
+        query.setParameter("sid", context.getSid());
         query.setParameter("qeid", p.getParameterKey());
-        MeasurementsPerformed returnValue = query.getSingleResult();
-        em.close();
-        return returnValue;
+        Map<Object, MeasurementsPerformed> unique = new LinkedHashMap<>();
+        for (MeasurementsPerformed m : query.getResultList()) {
+            if (!unique.containsKey(m.getMeasurementId())) {
+                unique.put(m.getMeasurementId(), m);
+            }
+        }
+        return new ArrayList<>(unique.values());
     }
 
     private AState getState(EntityManager em, int state) {
@@ -150,19 +136,22 @@ public class AnIssueFacadeREST extends AbstractFacade<AnIssue> {
                 em.persist(new History(context, userId, action.getActionType(),
                         newState, action, issue));
 
+                /* the cited data points are written as one JDBC batch when
+                 * the transaction commits */
                 Integer[] measurementIds = entity.getDatapoints();
                 if (measurementIds != null && measurementIds.length > 0) {
-                    for (int i = 0, c = measurementIds.length; i < c; ++i) {
-                        MeasurementsPerformed m
-                                = getMeasurementPerformed(measurementIds[i], context);
-                        CitedDataPoint d
-                                = new CitedDataPoint(issue, m.getMeasurementId(), m.getAnimalId());
-                        em.persist(d);
-                        em.flush();
-                        em.refresh(d);
+                    for (MeasurementsPerformed m
+                            : getMeasurementsPerformed(em, measurementIds, context)) {
+                        em.persist(new CitedDataPoint(issue,
+                                m.getMeasurementId(), m.getAnimalId()));
                     }
                 }
                 em.getTransaction().commit();
+                evict(context);
+                evict(issue);
+                evict(action);
+                updateSummary(em, issue.getId());
+                updateRollups(em, context);
             } catch (DatabaseException e) {
                 issue = null;
             }
@@ -190,90 +179,71 @@ public class AnIssueFacadeREST extends AbstractFacade<AnIssue> {
         return animalId;
     }
 
-    private AUser getUser(Integer id) {
-        EntityManager em = getDrupalEntityManager();
-        AUser r = null;
-        try {
-            r = em.find(AUser.class, id);
-        } catch (Exception e) {
-            System.err.println("Unable to find user with id "
-                    + id + " in Drupal database.");
-        } finally {
-            em.close();
+    /* Prepares the responses for a list of issues using a fixed number of
+     * queries: one projection query that retrieves the first action (which
+     * carries the issue description), procedure, parameter and genotype for
+     * all of the issues. User names are served from the UserDirectory. The
+     * responses are returned in the same order as the issues. */
+    private List<AnIssueResponse> prepareIssueResponses(List<AnIssue> issues) {
+        List<AnIssueResponse> t = new ArrayList<>();
+        if (issues == null || issues.isEmpty()) {
+            return t;
         }
-        return r;
-    }
 
-    private Procedure getProcedure(Integer id, EntityManager em) {
-        Procedure p = null;
-        try {
-            p = em.find(Procedure.class, id);
-        } catch (Exception e) {
-            System.err.println("Unable to find procedure with id "
-                    + id + " in impress database.");
-        }
-        return p;
-    }
-
-    private Parameter getParameter(Integer id, EntityManager em) {
-        Parameter q = null;
-        try {
-            q = em.find(Parameter.class, id);
-        } catch (Exception e) {
-            System.err.println("Unable to find parameter with id "
-                    + id + " in impress database.");
+        List<Long> ids = new ArrayList<>(issues.size());
+        for (AnIssue issue : issues) {
+            ids.add(issue.getId());
         }
-        return q;
-    }
 
-    private Genotype getGenotype(Integer id, EntityManager em) {
-        Genotype g = null;
+        Map<Long, Object[]> details = new HashMap<>();
+        EntityManager em = getEntityManager();
+        TypedQuery<Object[]> q = em.createQuery(
+                "SELECT i.id, a.description, "
+                + "p.procedureKey, p.name, "
+                + "q.parameterKey, q.name, g.geneSymbol "
+                + "FROM AnIssue i, AnAction a, "
+                + "Procedure p, Parameter q, Genotype g "
+                + "WHERE i.id IN :ids "
+                + "AND a.issueId = i "
+                + "AND a.id = (SELECT MIN(b.id) FROM AnAction b "
+                + "WHERE b.issueId = i) "
+                + "AND p.procedureId = i.contextId.pid "
+                + "AND q.parameterId = i.contextId.qid "
+                + "AND g.genotypeId = i.contextId.gid", Object[].class);
+        q.setParameter("ids", ids);
         try {
-            g = em.find(Genotype.class, id);
+            for (Object[] r : q.getResultList()) {
+                details.put((Long) r[0], r);
+            }
         } catch (Exception e) {
-            System.err.println("Unable to find genotype with id "
-                    + id + " in impress database.");
+            System.err.println(e.getMessage());
         }
-        return g;
-    }
-
-    private AnIssueResponse prepareIssueResponse(AnIssue issue) {
-        AnIssueResponse r = null;
-        EntityManager em = getEntityManager();
-        if (issue != null) {
-            TypedQuery<AnAction> actionQuery
-                    = em.createNamedQuery("AnAction.findByIssueId",
-                            AnAction.class);
-            actionQuery.setParameter("issueId", issue);
-            List<AnAction> actions = actionQuery.getResultList();
-            AnAction action = actions.get(0);
-            DataContext dc = issue.getContextId();
-            Procedure p = getProcedure(dc.getPid(), em);
-            Parameter q = getParameter(dc.getQid(), em);
-            Genotype g = getGenotype(dc.getGid(), em);
-            AUser raisedBy = getUser(issue.getRaisedBy());
-            AUser assignedTo = getUser(issue.getAssignedTo());
+        em.close();
 
-            if (p == null || q == null
-                    || raisedBy == null || assignedTo == null) {
-                System.err.println("Failed to retrieve issue details from database");
+        for (AnIssue issue : issues) {
+            Object[] d = details.get(issue.getId());
+            String raisedBy = getUserName(issue.getRaisedBy());
+            String assignedTo = getUserName(issue.getAssignedTo());
+            if (d == null || raisedBy == null || assignedTo == null) {
+                System.err.println("Failed to retrieve details for issue "
+                        + issue.getId() + " from database");
             } else {
-                r = new AnIssueResponse(
+                t.add(new AnIssueResponse(
                         issue.getId(),
-                        g.getGeneSymbol(),
+                        (String) d[6],
                         issue.getTitle(),
-                        action.getDescription(), issue.getPriorityString(),
+                        (String) d[1], issue.getPriorityString(),
                         issue.getControlSetting(),
                         issue.getStatus().getShortName(),
-                        raisedBy.toString(), raisedBy.getUid(),
-                        assignedTo.toString(),
-                        issue.getLastUpdate().getTime(), dc,
-                        p.getProcedureKey(), p.getName(),
-                        q.getParameterKey(), q.getName());
+                        raisedBy, issue.getRaisedBy(),
+                        assignedTo,
+                        issue.getLastUpdate().getTime(),
+                        issue.getContextId(),
+                        (String) d[2], (String) d[3],
+                        (String) d[4], (String) d[5]));
             }
         }
-        em.close();
-        return r;
+        return t;
     }
 
     @GET
@@ -289,9 +259,8 @@ public class AnIssueFacadeREST extends AbstractFacade<AnIssue> {
             if (issue == null) {
                 p.setDataSet(null, 0L);
             } else {
-                ArrayList<AnIssueResponse> t = new ArrayList<>();
-                t.add(prepareIssueResponse(issue));
-                p.setDataSet(t);
+                p.setDataSet(prepareIssueResponses(
+                        Collections.singletonList(issue)));
             }
         } else {
             p.sessionHasExpired();
@@ -299,205 +268,86 @@ public class AnIssueFacadeREST extends AbstractFacade<AnIssue> {
         return p;
     }
 
+    /* retrieves a page of issues from the summary */
     private List<AnIssue> getIssues(
-            Integer cid,
-            Integer lid,
-            Integer gid,
-            Integer sid,
-            Integer pid,
-            Integer qid,
-            String orderBy,
-            String orderDir,
+            List<IssueSummary.Row> rows,
             Integer start,
-            Integer limit,
-            Integer filter) {
-        List<AnIssue> issues = null;
-
-        EntityManager em = getEntityManager();
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<AnIssue> cq = cb.createQuery(AnIssue.class);
-        Root<DataContext> dc = cq.from(DataContext.class);
-        Root<AnIssue> i = cq.from(AnIssue.class);
-        Root<Procedure> pq = cq.from(Procedure.class);
-        Root<Parameter> qq = cq.from(Parameter.class);
-        Root<Genotype> gq = cq.from(Genotype.class);
-
-        Predicate p = cb.equal(dc.get(CID), cid);
-        if (lid != null && lid != -1) {
-            p = cb.and(p, cb.equal(i.get(LID), lid));
-            if (gid != null && gid != -1) {
-                p = cb.and(p, cb.equal(dc.get(GID), gid));
-                if (sid != null && sid != -1) {
-                    p = cb.and(p, cb.equal(dc.get(SID), sid));
-                    if (pid != null && pid != -1) {
-                        p = cb.and(p, cb.equal(dc.get(PID), pid));
-                        if (qid != null && qid != -1) {
-                            p = cb.and(p, cb.equal(dc.get(QID), qid));
-                        }
-                    }
-                }
-            }
+            Integer limit) {
+        int from = start == null || start == -1 ? 0 : start;
+        int to = limit == null || limit == -1 ? rows.size() : from + limit;
+        if (from >= rows.size()) {
+            return null;
         }
-        p = cb.and(p, cb.equal(i.get("isDeleted"), 0));
-        p = cb.and(p, cb.equal(dc, i.get("contextId")));
-        p = cb.and(p, cb.equal(dc.get(PID), pq.get("procedureId")));
-        p = cb.and(p, cb.equal(dc.get(QID), qq.get("parameterId")));
-        p = cb.and(p, cb.equal(dc.get(GID), gq.get("genotypeId")));
-
-        if (filter != 0x0) {
-            if ((filter & INCLUDE_NODATA_ISSUES) == 0x0) {
-                p = cb.and(p, cb.notEqual(dc.get(NUM_MEASUREMENTS), 0));
-            }
-            if ((filter & INCLUDE_NEW_ISSUES) == 0x0) {
-                p = cb.and(p, cb.notEqual(i.get(ISSUE_STATUS).get(CID), NEW_ISSUE));
-            }
-            if ((filter & INCLUDE_ACCEPTED_ISSUES) == 0x0) {
-                p = cb.and(p, cb.notEqual(i.get(ISSUE_STATUS).get(CID), ACCEPTED_ISSUE));
-            }
-            if ((filter & INCLUDE_RESOLVED_ISSUES) == 0x0) {
-                p = cb.and(p, cb.notEqual(i.get(ISSUE_STATUS).get(CID), RESOLVED_ISSUE));
-            }
-            if ((filter & INCLUDE_DATAADDED_ISSUES) == 0x0) {
-                p = cb.and(p, cb.notEqual(i.get(ISSUE_STATUS).get(CID), DATAADDED_ISSUE));
-            }
-            if ((filter & INCLUDE_DATAREMOVED_ISSUES) == 0x0) {
-                p = cb.and(p, cb.notEqual(i.get(ISSUE_STATUS).get(CID), DATAREMOVED_ISSUE));
-            }
-            if ((filter & INCLUDE_DATACHANGED_ISSUES) == 0x0) {
-                p = cb.and(p, cb.notEqual(i.get(ISSUE_STATUS).get(CID), DATACHANGED_ISSUE));
-            }
+        List<Long> ids = new ArrayList<>();
+        for (IssueSummary.Row row : rows.subList(from, Math.min(to, rows.size()))) {
+            ids.add(row.getId());
         }
 
-        cq.where(p);
+        Map<Long, AnIssue> found = new HashMap<>();
+        EntityManager em = getEntityManager();
+        TypedQuery<AnIssue> q = em.createQuery(
+                "SELECT i FROM AnIssue i WHERE i.id IN :ids", AnIssue.class);
+        q.setParameter("ids", ids);
+        for (AnIssue issue : q.getResultList()) {
+            found.put(issue.getId(), issue);
+        }
+        em.close();
 
-        if (orderBy != null && orderBy.length() > 0) {
-            switch (orderBy) {
-                case "geneSymbol":
-                    if ("ASC".equals(orderDir)) {
-                        cq.orderBy(cb.asc(gq.get(orderBy)));
-                    } else {
-                        cq.orderBy(cb.desc(gq.get(orderBy)));
-                    }
-                    break;
-                case "procedure":
-                    if ("ASC".equals(orderDir)) {
-                        cq.orderBy(cb.asc(pq.get(NAME)));
-                    } else {
-                        cq.orderBy(cb.desc(pq.get(NAME)));
-                    }
-                    break;
-                case "parameter":
-                    if ("ASC".equals(orderDir)) {
-                        cq.orderBy(cb.asc(qq.get(NAME)));
-                    } else {
-                        cq.orderBy(cb.desc(qq.get(NAME)));
-                    }
-                    break;
-                case "qeid":
-                    if ("ASC".equals(orderDir)) {
-                        cq.orderBy(cb.asc(qq.get(KEY)));
-                    } else {
-                        cq.orderBy(cb.desc(qq.get(KEY)));
-                    }
-                    break;
-                default:
-                    if ("ASC".equals(orderDir)) {
-                        cq.orderBy(cb.asc(i.get(orderBy)));
-                    } else {
-                        cq.orderBy(cb.desc(i.get(orderBy)));
-                    }
-                    break;
+        List<AnIssue> issues = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            AnIssue issue = found.get(id);
+            if (issue != null) {
+                issues.add(issue);
             }
         }
+        return issues;
+    }
 
-        TypedQuery<AnIssue> contextQuery = em.createQuery(cq);
+    /* counts the issues in the scope that pass the filter, as returned by
+     * the select queries below */
+    private long countIssues(Integer[] scope, Integer filter) {
+        long total = 0L;
+        EntityManager em = getEntityManager();
         try {
-            if (start != null && start != -1) {
-                contextQuery.setFirstResult(start);
-            }
-            if (limit != null && limit != -1) {
-                contextQuery.setMaxResults(limit);
-            }
-
-            issues = contextQuery.getResultList();
+            Long n = AnIssueQueries.createCountQuery(em, scope, filter)
+                    .getSingleResult();
+            total = n == null ? 0L : n;
         } catch (Exception e) {
+            System.err.println(e.getMessage());
         }
         em.close();
-        return issues;
+        return total;
     }
 
-    private Long countTotalIssues(
-            Integer cid,
-            Integer lid,
-            Integer gid,
-            Integer sid,
-            Integer pid,
-            Integer qid,
+    /* retrieves a page of issues sorted by a column that is not in the
+     * summary */
+    private List<AnIssue> getIssues(
+            Integer[] scope,
+            String orderBy,
+            boolean ascending,
+            Integer start,
+            Integer limit,
             Integer filter) {
-        Long count = 0L;
-
+        List<AnIssue> issues = null;
         EntityManager em = getEntityManager();
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
-        Root<DataContext> dc = cq.from(DataContext.class);
-        Root<AnIssue> i = cq.from(AnIssue.class);
-        Root<Procedure> pq = cq.from(Procedure.class);
-        Root<Parameter> qq = cq.from(Parameter.class);
-
-        Predicate p = cb.equal(dc.get(CID), cid);
-        if (lid != null && lid != -1) {
-            p = cb.and(p, cb.equal(i.get(LID), lid));
-            if (gid != null && gid != -1) {
-                p = cb.and(p, cb.equal(dc.get(GID), gid));
-                if (sid != null && sid != -1) {
-                    p = cb.and(p, cb.equal(dc.get(SID), sid));
-                    if (pid != null && pid != -1) {
-                        p = cb.and(p, cb.equal(dc.get(PID), pid));
-                        if (qid != null && qid != -1) {
-                            p = cb.and(p, cb.equal(dc.get(QID), qid));
-                        }
-                    }
-                }
-            }
+        if (!AnIssueQueries.isSortable(em, orderBy)) {
+            orderBy = AnIssueQueries.DEFAULT_SORT;
         }
-        p = cb.and(p, cb.equal(i.get("isDeleted"), 0));
-        p = cb.and(p, cb.equal(dc, i.get("contextId")));
-        p = cb.and(p, cb.equal(dc.get(PID), pq.get("procedureId")));
-        p = cb.and(p, cb.equal(dc.get(QID), qq.get("parameterId")));
-
-        if (filter != 0x0) {
-            if ((filter & INCLUDE_NODATA_ISSUES) == 0x0) {
-                p = cb.and(p, cb.notEqual(dc.get(NUM_MEASUREMENTS), 0));
-            }
-            if ((filter & INCLUDE_NEW_ISSUES) == 0x0) {
-                p = cb.and(p, cb.notEqual(i.get(ISSUE_STATUS).get(CID), NEW_ISSUE));
-            }
-            if ((filter & INCLUDE_ACCEPTED_ISSUES) == 0x0) {
-                p = cb.and(p, cb.notEqual(i.get(ISSUE_STATUS).get(CID), ACCEPTED_ISSUE));
-            }
-            if ((filter & INCLUDE_RESOLVED_ISSUES) == 0x0) {
-                p = cb.and(p, cb.notEqual(i.get(ISSUE_STATUS).get(CID), RESOLVED_ISSUE));
-            }
-            if ((filter & INCLUDE_DATAADDED_ISSUES) == 0x0) {
-                p = cb.and(p, cb.notEqual(i.get(ISSUE_STATUS).get(CID), DATAADDED_ISSUE));
-            }
-            if ((filter & INCLUDE_DATAREMOVED_ISSUES) == 0x0) {
-                p = cb.and(p, cb.notEqual(i.get(ISSUE_STATUS).get(CID), DATAREMOVED_ISSUE));
+        TypedQuery<AnIssue> contextQuery = AnIssueQueries.createSelectQuery(
+                em, scope, filter, orderBy, ascending);
+        try {
+            if (start != null && start != -1) {
+                contextQuery.setFirstResult(start);
             }
-            if ((filter & INCLUDE_DATACHANGED_ISSUES) == 0x0) {
-                p = cb.and(p, cb.notEqual(i.get(ISSUE_STATUS).get(CID), DATACHANGED_ISSUE));
+            if (limit != null && limit != -1) {
+                contextQuery.setMaxResults(limit);
             }
-        }
 
-        cq.select(cb.count(dc));
-        cq.where(p);
-        TypedQuery<Long> countQuery = em.createQuery(cq);
-        try {
-            count = countQuery.getSingleResult();
+            issues = contextQuery.getResultList();
         } catch (Exception e) {
         }
         em.close();
-        return count;
+        return issues;
     }
 
     @GET
@@ -520,6 +370,8 @@ public class AnIssueFacadeREST extends AbstractFacade<AnIssue> {
         if (isValidSession(sessionId, userId)) {
             p.setDataSet(null, 0L);
             List<AnIssue> issues;
+            long total;
+            Integer[] scope = {cid, lid, gid, sid, pid, qid};
 
             /* none of the issue types are specified for inclusion */
             if (filter == 0x0) {
@@ -528,9 +380,10 @@ public class AnIssueFacadeREST extends AbstractFacade<AnIssue> {
 
             if (cid == null || cid == -1) {
                 issues = super.findAll();
+                total = issues == null ? 0L : issues.size();
             } else {
                 // by default, sort in reverse chronological order
-                String orderBy = "lastUpdate";
+                String orderBy = AnIssueQueries.DEFAULT_SORT;
                 String orderDir = "DESC";
 
                 // check sorting request from client
@@ -544,21 +397,31 @@ public class AnIssueFacadeREST extends AbstractFacade<AnIssue> {
                     } catch (JSONException ex) {
                     }
                 }
-
-                issues = getIssues(cid, lid, gid, sid, pid, qid,
-                        orderBy, orderDir, start, limit, filter);
+                boolean ascending = "ASC".equals(orderDir);
+                IssueSummary summary = getIssueSummary();
+
+                /* the summary supplies the page of issues, and the total,
+                 * if it can sort them; otherwise both come from the
+                 * database, so that they agree with each other */
+                if (summary != null && IssueSummary.isSortable(orderBy)) {
+                    EntityManager em = getEntityManager();
+                    List<IssueSummary.Row> rows = summary.find(em, scope,
+                            filter, orderBy, ascending);
+                    em.close();
+                    total = rows.size();
+                    issues = getIssues(rows, start, limit);
+                } else {
+                    total = countIssues(scope, filter);
+                    issues = getIssues(scope, orderBy, ascending, start,
+                            limit, filter);
+                }
             }
 
             if (issues == null || issues.isEmpty()) {
                 p.setDataSet(null, 0L);
             } else {
-                ArrayList<AnIssueResponse> t = new ArrayList<>();
-                Iterator<AnIssue> i = issues.iterator();
-                while (i.hasNext()) {
-                    t.add(prepareIssueResponse(i.next()));
-                }
-                p.setDataSet(t);
-                p.setTotal(countTotalIssues(cid, lid, gid, sid, pid, qid, filter));
+                p.setDataSet(prepareIssueResponses(issues));
+                p.setTotal(total);
             }
         } else {
             p.sessionHasExpired();
@@ -585,13 +448,7 @@ public class AnIssueFacadeREST extends AbstractFacade<AnIssue> {
             } else {
                 /* this will make resolved issues appear at the bottom */
                 Collections.sort(issues);
-
-                Iterator<AnIssue> i = issues.iterator();
-                ArrayList<AnIssueResponse> t = new ArrayList<>();
-                while (i.hasNext()) {
-                    t.add(prepareIssueResponse(i.next()));
-                }
-                p.setDataSet(t);
+                p.setDataSet(prepareIssueResponses(issues));
             }
             em.close();
         } else {
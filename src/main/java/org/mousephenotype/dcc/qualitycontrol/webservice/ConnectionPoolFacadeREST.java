@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.webservice;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.ejb.Stateless;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.mousephenotype.dcc.qualitycontrol.entities.ConnectionPoolStatistics;
+import org.mousephenotype.dcc.qualitycontrol.persistence.PersistenceManager;
+import org.mousephenotype.dcc.qualitycontrol.webservice.pack.ConnectionPoolPack;
+
+/**
+ * Reports the current usage of the database connection pools, so that
+ * the pool sizes can be tuned. The same figures are available over JMX.
+ *
+ * @author agent <agent@local>
+ */
+@Stateless
+@Path("connectionpools")
+public class ConnectionPoolFacadeREST extends AbstractFacade<ConnectionPoolStatistics> {
+
+    public ConnectionPoolFacadeREST() {
+        super(ConnectionPoolStatistics.class);
+    }
+
+    @GET
+    @Path("extjs")
+    @Produces(MediaType.APPLICATION_JSON)
+    public ConnectionPoolPack extjsFindAll(
+            @QueryParam("s") String sessionId,
+            @QueryParam("u") Integer userId) {
+        ConnectionPoolPack p = new ConnectionPoolPack();
+        if (isValidSession(sessionId, userId)) {
+            PersistenceManager pm = getPersistenceManager();
+            List<ConnectionPoolStatistics> t = new ArrayList<>();
+            DataSource ds = pm.getConnectionPool();
+            if (ds != null) {
+                t.add(new ConnectionPoolStatistics("qc", ds));
+            }
+            ds = pm.getDrupalConnectionPool();
+            if (ds != null) {
+                t.add(new ConnectionPoolStatistics("drupal", ds));
+            }
+            p.setDataSet(t);
+        } else {
+            p.sessionHasExpired();
+        }
+        return p;
+    }
+}
@@ -32,13 +32,16 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import org.mousephenotype.dcc.entities.overviews.ACentre;
 import org.mousephenotype.dcc.entities.qc.AState;
-import org.mousephenotype.dcc.entities.qc.AUser;
 import org.mousephenotype.dcc.entities.qc.ActionType;
 import org.mousephenotype.dcc.entities.qc.DataContext;
 import org.mousephenotype.dcc.entities.qc.History;
 import org.mousephenotype.dcc.entities.qc.HistoryEntry;
+import org.mousephenotype.dcc.qualitycontrol.entities.JobStatus;
+import org.mousephenotype.dcc.qualitycontrol.jobs.JobManager;
+import org.mousephenotype.dcc.qualitycontrol.jobs.QcDoneTask;
 import org.mousephenotype.dcc.qualitycontrol.webservice.pack.DataContextHistoryPack;
 import org.mousephenotype.dcc.qualitycontrol.webservice.pack.DataContextPack;
+import org.mousephenotype.dcc.qualitycontrol.webservice.pack.JobStatusPack;
 
 /**
  *
@@ -99,6 +102,8 @@ public class DataContextFacadeREST extends AbstractFacade<DataContext> {
             em.persist(new History(context, userId, actionType,
                     state, null, null));
             em.getTransaction().commit();
+            evict(context);
+            updateRollups(em, context);
         }
     }
 
@@ -117,11 +122,16 @@ public class DataContextFacadeREST extends AbstractFacade<DataContext> {
 
         /* get the data context */
         DataContext context = em.find(DataContext.class, contextId);
+        if (context == null) {
+            em.close();
+            return;
+        }
 
         /* find all of the parameters under procedure defined by the context */
-        TypedQuery<DataContext> q
-                = em.createNamedQuery("DataContext.findByCidLidGidSidPid",
-                        DataContext.class);
+        TypedQuery<Long> q = em.createQuery(
+                "SELECT d.id FROM DataContext d WHERE d.cid = :cid "
+                + "AND d.lid = :lid AND d.gid = :gid AND d.sid = :sid "
+                + "AND d.pid = :pid", Long.class);
         q.setParameter("cid", context.getCid());
         q.setParameter("lid", context.getLid());
         q.setParameter("gid", context.getGid());
@@ -132,18 +142,70 @@ public class DataContextFacadeREST extends AbstractFacade<DataContext> {
         try {
             AState state = getState("qcdone", em);
             ActionType actionType = getActionType("qcdone", em);
-
-            List<DataContext> group = q.getResultList();
-            Iterator<DataContext> i = group.iterator();
-            while (i.hasNext()) {
-                context = i.next();
-                markContextAsQcDone(context, state, actionType, userId, em);
-            }
+            QcDoneTask.markContextsAsQcDone(q.getResultList(), state,
+                    actionType, userId, em, getGeneStrainRollup());
         } catch (NoResultException e) {
         }
         em.close();
     }
 
+    /* Marks every data context in the scope as QC done (see QcDoneTask).
+     * The centre and pipeline are required; the genotype, strain and
+     * procedure narrow the scope further. Since a scope could contain
+     * hundreds of thousands of contexts, the update is run in the
+     * background, and the client polls qcdonebulk/{id} for its progress. */
+    @POST
+    @Path("qcdonebulk")
+    @Produces(MediaType.APPLICATION_JSON)
+    public JobStatusPack markScopeAsQcDone(
+            @QueryParam("cid") Integer cid,
+            @QueryParam("lid") Integer lid,
+            @QueryParam("gid") Integer gid,
+            @QueryParam("sid") Integer sid,
+            @QueryParam("pid") Integer pid,
+            @QueryParam("s") String sessionId,
+            @QueryParam("u") Integer userId) {
+        JobStatusPack p = new JobStatusPack();
+        if (isValidSession(sessionId, userId)) {
+            p.setDataSet(null, 0L);
+            JobManager jm = (JobManager) getServletContext().getAttribute("JobManager");
+            if (jm != null && cid != null && lid != null) {
+                QcDoneTask task = new QcDoneTask(getPersistenceManager(),
+                        getGeneStrainRollup(), cid, lid, gid, sid, pid, userId);
+                JobStatus status = jm.submit(task.getDescription(), task);
+                ArrayList<JobStatus> t = new ArrayList<>();
+                t.add(status);
+                p.setDataSet(t);
+            }
+        } else {
+            p.sessionHasExpired();
+        }
+        return p;
+    }
+
+    @GET
+    @Path("qcdonebulk/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public JobStatusPack getBulkProgress(
+            @PathParam("id") Long id,
+            @QueryParam("s") String sessionId,
+            @QueryParam("u") Integer userId) {
+        JobStatusPack p = new JobStatusPack();
+        if (isValidSession(sessionId, userId)) {
+            p.setDataSet(null, 0L);
+            JobManager jm = (JobManager) getServletContext().getAttribute("JobManager");
+            JobStatus status = jm == null ? null : jm.get(id);
+            if (status != null) {
+                ArrayList<JobStatus> t = new ArrayList<>();
+                t.add(status);
+                p.setDataSet(t);
+            }
+        } else {
+            p.sessionHasExpired();
+        }
+        return p;
+    }
+
     @GET
     @Path("extjs/{id}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -223,7 +285,6 @@ public class DataContextFacadeREST extends AbstractFacade<DataContext> {
         if (isValidSession(sessionId, userId)) {
             p.setDataSet(null, 0L);
             EntityManager em = getEntityManager();
-            EntityManager drupalEm = getDrupalEntityManager();
             DataContext dc = em.find(DataContext.class, contextId);
             if (dc != null) {
                 TypedQuery<HistoryEntry> query
@@ -239,17 +300,16 @@ public class DataContextFacadeREST extends AbstractFacade<DataContext> {
                     if (e.getActionedBy() == -1) {
                         username = "crawler";
                     } else {
-                        AUser u = drupalEm.find(AUser.class, e.getActionedBy());
-                        if (u == null) {
-                            username = "unknown";
+                        String u = getUserName(e.getActionedBy());
+                        if (u != null) {
+                            username = u;
                         }
                     }
                     e.setUser(username);
                 }
                 p.setDataSet(entries);
             }
-                em.close();
-            drupalEm.close();
+            em.close();
         } else {
             p.sessionHasExpired();
         }
@@ -20,6 +20,7 @@ import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
+import org.mousephenotype.dcc.qualitycontrol.cache.GeneStrainRollup;
 import org.mousephenotype.dcc.qualitycontrol.entities.GeneStrain;
 import org.mousephenotype.dcc.qualitycontrol.webservice.pack.GeneStrainPack;
 
@@ -47,13 +48,16 @@ public class GeneStrainFacadeREST extends AbstractFacade<GeneStrain> {
         if (isValidSession(sessionId, userId)) {
             if (centreId != null && pipelineId != null) {
                 EntityManager em = getEntityManager();
-                TypedQuery<GeneStrain> query =
-                        em.createNamedQuery(
-                        "GeneStrain.findByCentrePipeline",
-                        GeneStrain.class);
-                query.setParameter("cid", centreId);
-                query.setParameter("lid", pipelineId);
-                g.setDataSet(query.getResultList());
+                GeneStrainRollup rollup = getGeneStrainRollup();
+                if (rollup == null) {
+                    TypedQuery<GeneStrain> q = em.createNamedQuery(
+                            "GeneStrain.findByCentrePipeline", GeneStrain.class);
+                    q.setParameter("cid", centreId);
+                    q.setParameter("lid", pipelineId);
+                    g.setDataSet(q.getResultList());
+                } else {
+                    g.setDataSet(rollup.find(em, centreId, pipelineId));
+                }
                 em.close();
             }
         } else {
@@ -61,4 +65,34 @@ public class GeneStrainFacadeREST extends AbstractFacade<GeneStrain> {
         }
         return g;
     }
+
+    /* Diagnostic for operators; the web application does not call it.
+     * Returns the gene/strains whose rollup did not match the aggregate
+     * query (GeneStrain.findByCentrePipeline), and if there are any, the
+     * rollup of the centre and pipeline is reloaded on the next request.
+     * Calling it after the crawler has run makes data contexts that the
+     * crawler added or changed visible before the rollup expires. */
+    @GET
+    @Path("check")
+    @Produces(MediaType.APPLICATION_JSON)
+    public GeneStrainPack checkRollups(
+            @QueryParam("cid") Integer centreId,
+            @QueryParam("lid") Integer pipelineId,
+            @QueryParam("s") String sessionId,
+            @QueryParam("u") Integer userId) {
+        GeneStrainPack g = new GeneStrainPack();
+        if (isValidSession(sessionId, userId)) {
+            if (centreId != null && pipelineId != null) {
+                GeneStrainRollup rollup = getGeneStrainRollup();
+                if (rollup != null) {
+                    EntityManager em = getEntityManager();
+                    g.setDataSet(rollup.check(em, centreId, pipelineId));
+                    em.close();
+                }
+            }
+        } else {
+            g.setSuccess(false);
+        }
+        return g;
+    }
 }
@@ -26,7 +26,6 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
-import org.mousephenotype.dcc.entities.qc.AUser;
 import org.mousephenotype.dcc.entities.qc.HistoryEntry;
 import org.mousephenotype.dcc.qualitycontrol.webservice.pack.HistoryPack;
 
@@ -52,7 +51,6 @@ public class HistoryFacadeREST extends AbstractFacade<HistoryEntry> {
         HistoryPack p = new HistoryPack();
         if (isValidSession(sessionId, userId)) {
             EntityManager em = getEntityManager();
-            EntityManager drupalEm = getDrupalEntityManager();
             TypedQuery<HistoryEntry> q = em.createNamedQuery(
                     "History.findByContextId", HistoryEntry.class);
             q.setParameter("contextId", contextId);
@@ -60,19 +58,17 @@ public class HistoryFacadeREST extends AbstractFacade<HistoryEntry> {
             Iterator<HistoryEntry> i = temp.iterator();
             while (i.hasNext()) {
                 HistoryEntry h = i.next();
-                AUser actionedBy = drupalEm.find(AUser.class, h.getActionedBy());
                 String user;
                 if (h.getActionedBy() == -1) {
                     user = "Crawler";
                 } else {
-                    user = actionedBy == null
-                            ? "Unknown" : actionedBy.toString();
+                    String actionedBy = getUserName(h.getActionedBy());
+                    user = actionedBy == null ? "Unknown" : actionedBy;
                 }
                 h.setUser(user);
             }
             p.setDataSet(temp);
             em.close();
-            drupalEm.close();
         } else {
             p.sessionHasExpired();
         }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.webservice;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import org.mousephenotype.dcc.qualitycontrol.cache.LineLevelData;
+import org.mousephenotype.dcc.qualitycontrol.entities.KeyValueRecord;
+import org.mousephenotype.dcc.qualitycontrol.webservice.pack.AbstractRestResponse;
+import org.mousephenotype.dcc.qualitycontrol.webservice.pack.FertilityPack;
+import org.mousephenotype.dcc.qualitycontrol.webservice.pack.ViabilityPack;
+
+/**
+ * Web service for retrieving the line-level parameters (fertility, viability
+ * and embryo viability) for a given genotype and procedure.
+ *
+ * Line-level procedures only differ in the fragment of the parameter keys,
+ * so all of them are served from the LineLevelData projection. Fertility
+ * and viability are retrieved by centre, pipeline, genotype, strain and
+ * procedure; embryo viability is retrieved by centre, genotype, strain and
+ * embryo stage.
+ *
+ * @author agent <agent@local>
+ */
+@Stateless
+@Path("{procedure: fertility|viability|embryo-viability}")
+public class LineLevelFacadeREST extends AbstractFacade<KeyValueRecord> {
+
+    /* embryo stage (sent by the client) to parameter key fragment */
+    private static final Map<String, String> embryoStages = new HashMap<>();
+
+    static {
+        embryoStages.put("EVL", "%_EVL_%");
+        embryoStages.put("EVM", "%_EVM_%");
+        embryoStages.put("EVO", "%_EVO_%");
+        embryoStages.put("EVP", "%_EVP_%");
+    }
+
+    public LineLevelFacadeREST() {
+        super(KeyValueRecord.class);
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response extjsFindBy(
+            @PathParam("procedure") String procedure,
+            @QueryParam("cid") Integer centreId,
+            @QueryParam("lid") Integer pipelineId,
+            @QueryParam("gid") Integer genotypeId,
+            @QueryParam("sid") Integer strainId,
+            @QueryParam("peid") String procedureKey,
+            @QueryParam("stage") String stage,
+            @QueryParam("s") String sessionId,
+            @QueryParam("u") Integer userId
+    ) {
+        AbstractRestResponse<KeyValueRecord> p;
+        String procedureFrag;
+        switch (procedure) {
+            case "fertility":
+                p = new FertilityPack();
+                procedureFrag = "%_FER_%";
+                break;
+            case "viability":
+                p = new ViabilityPack();
+                procedureFrag = "%_VIA_%";
+                break;
+            default:
+                /* embryo viability is not specific to a pipeline, and the
+                 * stage identifies the procedure */
+                p = new ViabilityPack();
+                procedureFrag = stage == null ? null : embryoStages.get(stage);
+                pipelineId = null;
+                procedureKey = null;
+        }
+
+        if (isValidSession(sessionId, userId)) {
+            boolean embryo = "embryo-viability".equals(procedure);
+            if (centreId == null || genotypeId == null || strainId == null
+                    || procedureFrag == null
+                    || (!embryo && (pipelineId == null || procedureKey == null
+                    || procedureKey.isEmpty()))) {
+                p.setDataSet(null, 0L);
+            } else {
+                LineLevelData lineLevelData
+                        = (LineLevelData) getServletContext().getAttribute("LineLevelData");
+                EntityManager em = getEntityManager();
+                try {
+                    p.setDataSet(lineLevelData.find(em, procedureFrag,
+                            centreId, pipelineId, genotypeId, strainId,
+                            procedureKey));
+                } catch (Exception e) {
+                    System.err.println(e.getMessage());
+                }
+                em.close();
+            }
+        } else {
+            p.sessionHasExpired();
+        }
+        return Response.ok(p).build();
+    }
+}
@@ -15,20 +15,31 @@
  */
 package org.mousephenotype.dcc.qualitycontrol.webservice;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
-import org.mousephenotype.dcc.crawler.entities.XmlFile;
+import javax.ws.rs.core.Response;
+import org.codehaus.jackson.JsonGenerator;
 import org.mousephenotype.dcc.entities.overviews.MeasuredValues;
 import org.mousephenotype.dcc.entities.overviews.MetadataGroupToValues;
 import org.mousephenotype.dcc.entities.overviews.ProcedureMetadataGroup;
+import org.mousephenotype.dcc.qualitycontrol.cache.LruCache;
+import org.mousephenotype.dcc.qualitycontrol.webservice.pack.ColumnarMeasurementsPack;
 import org.mousephenotype.dcc.qualitycontrol.webservice.pack.MeasurementsPack;
+import org.mousephenotype.dcc.qualitycontrol.webservice.pack.StreamingPack;
 
 /**
  *
@@ -38,69 +49,168 @@ import org.mousephenotype.dcc.qualitycontrol.webservice.pack.MeasurementsPack;
 @Path("measurements")
 public class MeasurementsFacadeREST extends AbstractFacade<MeasuredValues> {
 
+    /* number of identifiers to send in a single IN (...) list */
+    private static final int MAX_IN_LIST_SIZE = 1000;
+
+    /* maximum number of (pipeline, procedure, meta-data group) tuples in a
+     * single baseline query */
+    private static final int MAX_BASELINE_TUPLES = 50;
+
+    /* baseline (wild type) measurements for any of the tuples, which are
+     * added as BASELINE_TUPLE conditions numbered from zero */
+    private static final String BASELINE = "SELECT m FROM MeasuredValues m WHERE m.centreId = :centreId AND m.strainId = :strainId AND m.genotypeId = 0 AND m.parameterId = :parameterId AND (";
+    private static final String BASELINE_TUPLE = "(m.pipeline = :pipeline%1$d AND m.procedureId = :procedureId%1$d AND m.metadataGroup = :metadataGroup%1$d)";
+
     public MeasurementsFacadeREST() {
         super(MeasuredValues.class);
     }
 
-    private List<MeasuredValues> getMutantMeasurements(
+    // The last modified date of a measurement is the last update of the
+    // XML file that it was loaded from. Instead of finding the XML file for
+    // every measurement, we retrieve the dates for all of the tracker ids
+    // that we haven't seen yet in batches, and remember them for the rest
+    // of the request, since mutant and baseline measurements share files.
+    private void setLastModified(List<MeasuredValues> measurements,
+            Map<Long, Date> lastModified, EntityManager em) {
+        Set<Long> unknown = new HashSet<>();
+        for (MeasuredValues m : measurements) {
+            Long trackerId = m.getTrackerId();
+            if (trackerId != null && !lastModified.containsKey(trackerId)) {
+                unknown.add(trackerId);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            List<Long> ids = new ArrayList<>(unknown);
+            TypedQuery<Object[]> query = em.createQuery(
+                    "SELECT x.id, x.lastUpdate FROM XmlFile x WHERE x.id IN :ids",
+                    Object[].class);
+            for (int i = 0, c = ids.size(); i < c; i += MAX_IN_LIST_SIZE) {
+                query.setParameter("ids",
+                        ids.subList(i, Math.min(c, i + MAX_IN_LIST_SIZE)));
+                for (Object[] r : query.getResultList()) {
+                    lastModified.put((Long) r[0], (Date) r[1]);
+                }
+            }
+        }
+        for (MeasuredValues m : measurements) {
+            Date d = lastModified.get(m.getTrackerId());
+            if (d != null) {
+                m.setLastModified(d);
+            }
+        }
+    }
+
+    private TypedQuery<MeasuredValues> createMutantQuery(
+            EntityManager em,
             Integer centreId,
             Integer pipelineId,
             Integer genotypeId,
             Integer strainId,
             String procedureKey,
             String parameterKey) {
-        EntityManager em = getEntityManager();
-        List<MeasuredValues> temp = null;
+        TypedQuery<MeasuredValues> query
+                = em.createNamedQuery(
+                        "MeasurementsPerformed.findMutantMeasurements",
+                        MeasuredValues.class);
+        query.setParameter("centreId", centreId);
+        query.setParameter("pipelineId", pipelineId);
+        query.setParameter("genotypeId", genotypeId);
+        query.setParameter("strainId", strainId);
+        query.setParameter("procedureKey", procedureKey);
+        query.setParameter("parameterKey", parameterKey);
+        return query;
+    }
+
+    private static <T> TypedQuery<T> createQuery(EntityManager em,
+            String name, String jpql, Class<T> resultClass) {
         try {
-            TypedQuery<MeasuredValues> query
-                    = em.createNamedQuery(
-                            "MeasurementsPerformed.findMutantMeasurements",
-                            MeasuredValues.class);
+            return em.createNamedQuery(name, resultClass);
+        } catch (IllegalArgumentException e) {
+            em.getEntityManagerFactory()
+                    .addNamedQuery(name, em.createQuery(jpql, resultClass));
+            return em.createNamedQuery(name, resultClass);
+        }
+    }
+
+    private static String getBaselineQuery(int numTuples) {
+        StringBuilder jpql = new StringBuilder(BASELINE);
+        for (int i = 0; i < numTuples; ++i) {
+            if (i > 0) {
+                jpql.append(" OR ");
+            }
+            jpql.append(String.format(BASELINE_TUPLE, i));
+        }
+        return jpql.append(")").toString();
+    }
+
+    // Baseline measurements are retrieved for every procedure meta-data
+    // group of the mutant. Groups that share the same pipeline, procedure
+    // and meta-data group return the same baseline, so we select the
+    // baseline for all of the distinct tuples with one query. The query
+    // only depends on the number of tuples, so it is registered as a named
+    // query when it is first used. Only if there are more than
+    // MAX_BASELINE_TUPLES tuples is more than one query returned.
+    private List<TypedQuery<MeasuredValues>> createBaselineQueries(
+            EntityManager em,
+            Integer centreId,
+            Integer strainId,
+            String parameterKey,
+            List<ProcedureMetadataGroup> groups) {
+        Set<List<Object>> distinct = new LinkedHashSet<>();
+        for (ProcedureMetadataGroup t : groups) {
+            distinct.add(Arrays.<Object>asList(t.getPipeline(),
+                    t.getProcedureId(), t.getMetadataGroup()));
+        }
+        List<List<Object>> tuples = new ArrayList<>(distinct);
+        List<TypedQuery<MeasuredValues>> queries = new ArrayList<>();
+        for (int i = 0, c = tuples.size(); i < c; i += MAX_BASELINE_TUPLES) {
+            List<List<Object>> chunk
+                    = tuples.subList(i, Math.min(c, i + MAX_BASELINE_TUPLES));
+            TypedQuery<MeasuredValues> query = createQuery(em,
+                    "MeasurementsFacadeREST.findBaseline" + chunk.size(),
+                    getBaselineQuery(chunk.size()), MeasuredValues.class);
             query.setParameter("centreId", centreId);
-            query.setParameter("pipelineId", pipelineId);
-            query.setParameter("genotypeId", genotypeId);
             query.setParameter("strainId", strainId);
-            query.setParameter("procedureKey", procedureKey);
-            query.setParameter("parameterKey", parameterKey);
-            temp = query.getResultList();
-            for (MeasuredValues m : temp) {
-                XmlFile xf = em.find(XmlFile.class, m.getTrackerId());
-                if (xf != null) {
-                    m.setLastModified(xf.getLastUpdate());
-                }
+            query.setParameter("parameterId", parameterKey);
+            for (int j = 0, n = chunk.size(); j < n; ++j) {
+                List<Object> tuple = chunk.get(j);
+                query.setParameter("pipeline" + j, tuple.get(0));
+                query.setParameter("procedureId" + j, tuple.get(1));
+                query.setParameter("metadataGroup" + j, tuple.get(2));
             }
-            em.close();
-        } catch (Exception e) {
-            System.err.println(e.getMessage());
+            queries.add(query);
         }
-        return temp;
+        return queries;
+    }
+
+    // Removes the measurements that have already been seen, so that a
+    // measurement that belongs to more than one of the baseline tuples is
+    // only sent once.
+    private static List<MeasuredValues> dropDuplicates(
+            List<MeasuredValues> measurements, Set<Object> seen) {
+        List<MeasuredValues> unique = new ArrayList<>(measurements.size());
+        for (MeasuredValues m : measurements) {
+            if (seen.add(m.getMeasurementId())) {
+                unique.add(m);
+            }
+        }
+        return unique;
     }
 
-    private List<MeasuredValues> getBaselineMeasurements(
+    private List<MeasuredValues> getMutantMeasurements(
             Integer centreId,
+            Integer pipelineId,
+            Integer genotypeId,
             Integer strainId,
+            String procedureKey,
             String parameterKey,
-            ProcedureMetadataGroup t) {
+            Map<Long, Date> lastModified) {
         EntityManager em = getEntityManager();
         List<MeasuredValues> temp = null;
         try {
-            TypedQuery<MeasuredValues> query
-                    = em.createNamedQuery(
-                            "MeasurementsPerformed.findBaselineMeasurements",
-                            MeasuredValues.class);
-            query.setParameter("centreId", centreId);
-            query.setParameter("pipeline", t.getPipeline());
-            query.setParameter("strainId", strainId);
-            query.setParameter("procedureId", t.getProcedureId());
-            query.setParameter("parameterId", parameterKey);
-            query.setParameter("metadataGroup", t.getMetadataGroup());
-            temp = query.getResultList();
-            for (MeasuredValues m : temp) {
-                XmlFile xf = em.find(XmlFile.class, m.getTrackerId());
-                if (xf != null) {
-                    m.setLastModified(xf.getLastUpdate());
-                }
-            }
+            temp = createMutantQuery(em, centreId, pipelineId, genotypeId,
+                    strainId, procedureKey, parameterKey).getResultList();
+            setLastModified(temp, lastModified, em);
             em.close();
         } catch (Exception e) {
             System.err.println(e.getMessage());
@@ -108,47 +218,148 @@ public class MeasurementsFacadeREST extends AbstractFacade<MeasuredValues> {
         return temp;
     }
 
-    private MetadataGroupToValues getMetadataGroupValue(String mg) {
-        MetadataGroupToValues v = null;
+    // The baseline is normally retrieved with a single query, and the
+    // measurements are appended directly to the supplied list.
+    private void getBaselineMeasurements(
+            Integer centreId,
+            Integer strainId,
+            String parameterKey,
+            List<ProcedureMetadataGroup> groups,
+            List<MeasuredValues> measurements,
+            Map<Long, Date> lastModified) {
         EntityManager em = getEntityManager();
         try {
-            TypedQuery<MetadataGroupToValues> query
-                    = em.createNamedQuery(
-                            "MetadataGroupToValues.findByMetadataGroup",
-                            MetadataGroupToValues.class);
-            query.setParameter("metadataGroup", mg);
-            query.setMaxResults(1);
-            v = query.getSingleResult();
+            List<MeasuredValues> baseline = new ArrayList<>();
+            Set<Object> seen = new HashSet<>();
+            for (TypedQuery<MeasuredValues> query : createBaselineQueries(em,
+                    centreId, strainId, parameterKey, groups)) {
+                baseline.addAll(dropDuplicates(query.getResultList(), seen));
+            }
+            setLastModified(baseline, lastModified, em);
+            measurements.addAll(baseline);
         } catch (Exception e) {
             System.err.println(e.getMessage());
         }
         em.close();
-        return v;
+    }
+
+    // Meta-data groups are identified by the checksum of their values, so
+    // the mapping from checksum to values never changes. Hence, we resolve
+    // all of the unknown checksums with a single query and keep them in a
+    // cache that is shared by all of the requests (see CacheListener).
+    @SuppressWarnings("unchecked")
+    private Map<String, MetadataGroupToValues> getMetadataGroupValues(
+            Set<String> checksums) {
+        LruCache<String, MetadataGroupToValues> metadataGroupCache
+                = (LruCache<String, MetadataGroupToValues>) getServletContext()
+                .getAttribute("MetadataGroupCache");
+        Map<String, MetadataGroupToValues> values = new HashMap<>();
+        List<String> unknown = new ArrayList<>();
+        for (String checksum : checksums) {
+            if (checksum == null) {
+                continue;
+            }
+            MetadataGroupToValues v = metadataGroupCache == null
+                    ? null : metadataGroupCache.get(checksum);
+            if (v == null) {
+                unknown.add(checksum);
+            } else {
+                values.put(checksum, v);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            EntityManager em = getEntityManager();
+            try {
+                TypedQuery<MetadataGroupToValues> query = em.createQuery(
+                        "SELECT m FROM MetadataGroupToValues m WHERE m.metadataGroup IN :metadataGroups",
+                        MetadataGroupToValues.class);
+                for (int i = 0, c = unknown.size(); i < c; i += MAX_IN_LIST_SIZE) {
+                    query.setParameter("metadataGroups",
+                            unknown.subList(i, Math.min(c, i + MAX_IN_LIST_SIZE)));
+                    for (MetadataGroupToValues v : query.getResultList()) {
+                        String checksum = v.getMetadataGroup();
+                        if (!values.containsKey(checksum)) {
+                            values.put(checksum, v);
+                            if (metadataGroupCache != null) {
+                                metadataGroupCache.put(checksum, v);
+                            }
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println(e.getMessage());
+            }
+            em.close();
+        }
+        return values;
     }
 
     // We do not wish to send the meta-data group checksum or the values
     // for every measurement. So, we group all of the distinct meta-data groups
     // and send them with the measurements. Within each measurement, we replace
-    // the meta-data group checksum with the id.
-    private List<MetadataGroupToValues> convertMetadataGroupsToIndices(List<MeasuredValues> g) {
-        List<MetadataGroupToValues> mgs = new ArrayList<>();
-        HashMap<String, MetadataGroupToValues> distinct = new HashMap<>();
-        Iterator<MeasuredValues> i = g.iterator();
-        while (i.hasNext()) {
-            MeasuredValues v = i.next();
-            String checksum = v.getMetadataGroup();
-            MetadataGroupToValues mg = distinct.get(checksum);
-            if (mg == null) {
-                mg = getMetadataGroupValue(checksum);
+    // the meta-data group checksum with the id. Groups that are not already
+    // in 'distinct' are added to it in the order they were first seen.
+    private void convertMetadataGroupsToIndices(List<MeasuredValues> g,
+            Map<String, MetadataGroupToValues> distinct) {
+        Set<String> checksums = new LinkedHashSet<>();
+        for (MeasuredValues v : g) {
+            if (!distinct.containsKey(v.getMetadataGroup())) {
+                checksums.add(v.getMetadataGroup());
+            }
+        }
+        if (!checksums.isEmpty()) {
+            Map<String, MetadataGroupToValues> values
+                    = getMetadataGroupValues(checksums);
+            for (String checksum : checksums) {
+                MetadataGroupToValues mg = values.get(checksum);
                 if (mg != null) {
                     distinct.put(checksum, mg);
-                    mgs.add(mg);
                 }
             }
+        }
+        for (MeasuredValues v : g) {
+            MetadataGroupToValues mg = distinct.get(v.getMetadataGroup());
             v.setMetadataGroupIndex(mg == null
                     ? -1L : mg.getMetadataGroupToValuesId());
         }
-        return mgs;
+    }
+
+    // Writes the measurements to the client as they are read from the
+    // database. The last modified dates and meta-data group indices are
+    // filled in one chunk at a time, and the distinct meta-data groups are
+    // sent after all of the measurements.
+    private class MeasurementsStream extends StreamingPack<MeasuredValues> {
+
+        private final Map<Long, Date> lastModified = new HashMap<>();
+        private final Map<String, MetadataGroupToValues> distinct
+                = new LinkedHashMap<>();
+        private final Set<Object> seen = new HashSet<>();
+
+        MeasurementsStream(EntityManager em) {
+            super(em, "measurements");
+        }
+
+        /* the lookups use the entity manager bound to the request, since
+         * the cursor is still open on the stream's own entity manager */
+        @Override
+        protected List<MeasuredValues> prepare(List<MeasuredValues> records) {
+            List<MeasuredValues> chunk = dropDuplicates(records, seen);
+            EntityManager em = getEntityManager();
+            try {
+                setLastModified(chunk, lastModified, em);
+            } catch (Exception e) {
+                System.err.println(e.getMessage());
+            }
+            em.close();
+            convertMetadataGroupsToIndices(chunk, distinct);
+            return chunk;
+        }
+
+        @Override
+        protected void writeProperties(JsonGenerator g) throws IOException {
+            g.writeObjectField("metadataGroups",
+                    new ArrayList<>(distinct.values()));
+        }
     }
 
     public List<ProcedureMetadataGroup> getProcedureMetadataGroups(
@@ -177,10 +388,101 @@ public class MeasurementsFacadeREST extends AbstractFacade<MeasuredValues> {
         return t;
     }
 
+    // Returns null if the context is incomplete or has no measurements.
+    private List<ProcedureMetadataGroup> findProcedureMetadataGroups(
+            Integer centreId,
+            Integer pipelineId,
+            Integer genotypeId,
+            Integer strainId,
+            String procedureKey,
+            String parameterKey) {
+        if (centreId == null || pipelineId == null
+                || genotypeId == null || strainId == null
+                || procedureKey == null || procedureKey.isEmpty()
+                || parameterKey == null || parameterKey.isEmpty()) {
+            return null;
+        }
+        List<ProcedureMetadataGroup> t = getProcedureMetadataGroups(
+                centreId, pipelineId, genotypeId, strainId,
+                procedureKey, parameterKey);
+        return t == null || t.isEmpty() ? null : t;
+    }
+
+    // Returns the measurements and fills in the distinct meta-data groups,
+    // or null if the context is incomplete or has no measurements.
+    private List<MeasuredValues> findMeasurements(
+            Integer centreId,
+            Integer pipelineId,
+            Integer genotypeId,
+            Integer strainId,
+            String procedureKey,
+            String parameterKey,
+            Boolean includeBaseline,
+            List<MetadataGroupToValues> mgs) {
+        List<ProcedureMetadataGroup> t = findProcedureMetadataGroups(
+                centreId, pipelineId, genotypeId, strainId,
+                procedureKey, parameterKey);
+        if (t == null) {
+            return null;
+        }
+        Map<Long, Date> lastModified = new HashMap<>();
+        List<MeasuredValues> temp
+                = getMutantMeasurements(centreId, pipelineId,
+                        genotypeId, strainId,
+                        t.get(0).getProcedureId(), parameterKey,
+                        lastModified);
+        if (temp == null) {
+            temp = new ArrayList<>();
+        }
+        if (genotypeId != 0 && includeBaseline != null && includeBaseline) {
+            getBaselineMeasurements(centreId, strainId,
+                    parameterKey, t, temp, lastModified);
+        }
+        Map<String, MetadataGroupToValues> distinct = new LinkedHashMap<>();
+        convertMetadataGroupsToIndices(temp, distinct);
+        mgs.addAll(distinct.values());
+        return temp;
+    }
+
+    // Same as findMeasurements(), but the measurements are streamed to the
+    // client instead of being collected in memory.
+    private MeasurementsStream streamMeasurements(
+            Integer centreId,
+            Integer pipelineId,
+            Integer genotypeId,
+            Integer strainId,
+            String procedureKey,
+            String parameterKey,
+            Boolean includeBaseline) {
+        List<ProcedureMetadataGroup> t = findProcedureMetadataGroups(
+                centreId, pipelineId, genotypeId, strainId,
+                procedureKey, parameterKey);
+        if (t == null) {
+            return null;
+        }
+        EntityManager em = createEntityManager();
+        MeasurementsStream stream = new MeasurementsStream(em);
+        stream.addQuery(createMutantQuery(em, centreId, pipelineId,
+                genotypeId, strainId, t.get(0).getProcedureId(),
+                parameterKey));
+        if (genotypeId != 0 && includeBaseline != null && includeBaseline) {
+            for (TypedQuery<MeasuredValues> query : createBaselineQueries(em,
+                    centreId, strainId, parameterKey, t)) {
+                stream.addQuery(query);
+            }
+        }
+        return stream;
+    }
+
+    // When 'columnar' is true, the measurements are sent as parallel arrays
+    // (see ColumnarMeasurementsPack) instead of one JSON object for each
+    // measurement. This is much smaller for large baselines. Otherwise, when
+    // 'stream' is true, the measurements are written to the client while
+    // they are being read from the database (see StreamingPack).
     @GET
     @Path("extjs")
     @Produces(MediaType.APPLICATION_JSON)
-    public MeasurementsPack extjsFindBy(
+    public Response extjsFindBy(
             @QueryParam("cid") Integer centreId,
             @QueryParam("lid") Integer pipelineId,
             @QueryParam("gid") Integer genotypeId,
@@ -188,41 +490,55 @@ public class MeasurementsFacadeREST extends AbstractFacade<MeasuredValues> {
             @QueryParam("peid") String procedureKey,
             @QueryParam("qeid") String parameterKey,
             @QueryParam("ib") Boolean includeBaseline,
+            @QueryParam("columnar") Boolean columnar,
+            @QueryParam("stream") Boolean stream,
             @QueryParam("s") String sessionId,
             @QueryParam("u") Integer userId) {
-        MeasurementsPack p = new MeasurementsPack();
-        if (isValidSession(sessionId, userId)) {
-            if (centreId == null || pipelineId == null
-                    || genotypeId == null || strainId == null
-                    || procedureKey == null || procedureKey.isEmpty()
-                    || parameterKey == null || parameterKey.isEmpty()) {
+        boolean isValid = isValidSession(sessionId, userId);
+        if (stream != null && stream && (columnar == null || !columnar)) {
+            MeasurementsStream m = null;
+            if (isValid) {
+                m = streamMeasurements(centreId, pipelineId, genotypeId,
+                        strainId, procedureKey, parameterKey, includeBaseline);
+            }
+            if (m == null) {
+                /* nothing to stream, but still reply in the same format */
+                m = new MeasurementsStream(createEntityManager());
+                if (!isValid) {
+                    m.sessionHasExpired();
+                }
+            }
+            return Response.ok(m).build();
+        }
+        List<MetadataGroupToValues> mgs = new ArrayList<>();
+        List<MeasuredValues> temp = null;
+        if (isValid) {
+            temp = findMeasurements(centreId, pipelineId, genotypeId,
+                    strainId, procedureKey, parameterKey, includeBaseline,
+                    mgs);
+        }
+        if (columnar != null && columnar) {
+            ColumnarMeasurementsPack p = new ColumnarMeasurementsPack();
+            if (!isValid) {
+                p.sessionHasExpired();
+            } else if (temp == null) {
                 p.setDataSet(null, 0L);
             } else {
-                List<ProcedureMetadataGroup> t = getProcedureMetadataGroups(
-                        centreId, pipelineId, genotypeId, strainId,
-                        procedureKey, parameterKey);
-                if (t == null || t.isEmpty()) {
-                    p.setDataSet(null, 0L);
-                } else {
-                    List<MeasuredValues> temp
-                            = getMutantMeasurements(centreId, pipelineId,
-                                    genotypeId, strainId,
-                                    t.get(0).getProcedureId(), parameterKey);
-                    if (genotypeId != 0 && includeBaseline != null && includeBaseline) {
-                        Iterator<ProcedureMetadataGroup> i = t.iterator();
-                        while (i.hasNext()) {
-                            temp.addAll(getBaselineMeasurements(centreId,
-                                    strainId, parameterKey, i.next()));
-                        }
-                    }
-                    List<MetadataGroupToValues> mgs = convertMetadataGroupsToIndices(temp);
-                    p.setMetadataGroups(mgs);
-                    p.setDataSet(temp);
-                }
+                p.setMetadataGroups(mgs);
+                p.setDataSet(temp);
             }
+            return Response.ok(p).build();
         } else {
-            p.sessionHasExpired();
+            MeasurementsPack p = new MeasurementsPack();
+            if (!isValid) {
+                p.sessionHasExpired();
+            } else if (temp == null) {
+                p.setDataSet(null, 0L);
+            } else {
+                p.setMetadataGroups(mgs);
+                p.setDataSet(temp);
+            }
+            return Response.ok(p).build();
         }
-        return p;
     }
 }
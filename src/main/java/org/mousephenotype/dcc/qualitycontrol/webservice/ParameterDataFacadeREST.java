@@ -25,19 +25,22 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.TypedQuery;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import org.mousephenotype.dcc.qualitycontrol.cache.ParameterCatalogue;
 import org.mousephenotype.dcc.qualitycontrol.entities.ParameterData;
-import org.mousephenotype.dcc.entities.qc.StateAndUnresolvedIssuesCount;
+import org.mousephenotype.dcc.qualitycontrol.persistence.DataContextQueries;
 import org.mousephenotype.dcc.qualitycontrol.webservice.pack.ParameterDataPack;
 
 /**
@@ -103,10 +106,7 @@ public class ParameterDataFacadeREST extends AbstractFacade<Parameter> {
 
     private ParameterData fillParameterDetails(
             ParameterData pd,
-            ProcedureHasParameters pphp,
-            EntityManager em) {
-        Parameter p = em.find(Parameter.class,
-                pphp.getParameterId().getParameterId());
+            Parameter p) {
         if (p != null) {
             pd.setParameterId(p.getParameterId());
             pd.setParameterName(p.getName());
@@ -124,69 +124,37 @@ public class ParameterDataFacadeREST extends AbstractFacade<Parameter> {
         return pd;
     }
 
-    private List<ParameterData> getParameters(
-            Collection<ProcedureHasParameters> pphpc,
+    /* Retrieves the state and number of unresolved issues for all of the
+     * parameters in a procedure with one grouped query, keyed by parameter
+     * id. Counts only the data contexts shown in the tool (see
+     * DataContextQueries). */
+    private Map<Integer, Object[]> getParameterStates(
             EntityManager em,
             Integer centreId,
             Integer pipelineId,
             Integer genotypeId,
             Integer strainId,
             Integer procedureId) {
-        boolean updateState = centreId != null && centreId > -1
-                && pipelineId != null && pipelineId > -1
-                && genotypeId != null && genotypeId > -1
-                && strainId != null && strainId > -1
-                && procedureId != null && procedureId > -1;
-        List<ParameterData> pdl = new ArrayList<>();
-        Iterator<ProcedureHasParameters> pphpci
-                = pphpc.iterator();
-        if (pphpci.hasNext()) {
-            TypedQuery<StateAndUnresolvedIssuesCount> c = em.createNamedQuery(
-                    "DataContext.findParameterState",
-                    StateAndUnresolvedIssuesCount.class);
-            if (updateState) {
-                c.setParameter("centreId", centreId);
-                c.setParameter("pipelineId", pipelineId);
-                c.setParameter("genotypeId", genotypeId);
-                c.setParameter("strainId", strainId);
-                c.setParameter("procedureId", procedureId);
-            }
-
-            while (pphpci.hasNext()) {
-                ProcedureHasParameters pphp = pphpci.next();
-                Parameter p = pphp.getParameterId();
-
-                if (p.getGraphType() == null
-                        || "procedureMetadata".equals(p.getType())) {
-                    continue;
-                }
-
-                ParameterData pd = new ParameterData();
-                pd.setProcedureId(pphp.getProcedureId().getProcedureId());
-                pd.setWeight(pphp.getWeight());
-
-                pd = this.fillParameterDetails(pd, pphp, em);
-
-                /* fill context state */
-                if (updateState) {
-                    c.setParameter("parameterId", p.getParameterId());
-                    try {
-                        StateAndUnresolvedIssuesCount stateAndCount
-                                = c.getSingleResult();
-                        if (stateAndCount != null) {
-                            pd.setStateId(stateAndCount.getStateId());
-                            pd.setNumUnresolved(stateAndCount.getNumUnresolved());
-                        }
-                    } catch (NoResultException e) {
-                        pd.setStateId((short) 0); /* default: no data */
-
-                    }
-                }
-                pdl.add(pd);
-            }
+        TypedQuery<Object[]> q = em.createQuery(
+                "SELECT d.qid, MAX(d.stateId.cid), SUM(d.numIssues - d.numResolved) "
+                + "FROM DataContext d " + DataContextQueries.JOINS
+                + " WHERE (d.cid = :centreId AND d.lid = :pipelineId "
+                + "AND d.gid = :genotypeId AND d.sid = :strainId "
+                + "AND d.pid = :procedureId "
+                + "AND " + DataContextQueries.VISIBLE + ") "
+                + "GROUP BY d.qid", Object[].class);
+        q.setParameter("centreId", centreId);
+        q.setParameter("pipelineId", pipelineId);
+        q.setParameter("genotypeId", genotypeId);
+        q.setParameter("strainId", strainId);
+        q.setParameter("procedureId", procedureId);
+        Map<Integer, Object[]> states = new HashMap<>();
+        for (Object[] r : q.getResultList()) {
+            states.put(((Number) r[0]).intValue(), r);
         }
-        return pdl;
+        return states;
     }
+
     private Comparator<ProcedureHasParameters> comparator
             = new Comparator<ProcedureHasParameters>() {
                 @Override
@@ -201,6 +169,100 @@ public class ParameterDataFacadeREST extends AbstractFacade<Parameter> {
                 }
             };
 
+    private List<ParameterData> getParameters(
+            List<ParameterData> catalogue,
+            EntityManager em,
+            Integer centreId,
+            Integer pipelineId,
+            Integer genotypeId,
+            Integer strainId,
+            Integer procedureId) {
+        boolean updateState = centreId != null && centreId > -1
+                && pipelineId != null && pipelineId > -1
+                && genotypeId != null && genotypeId > -1
+                && strainId != null && strainId > -1
+                && procedureId != null && procedureId > -1;
+        Map<Integer, Object[]> states = updateState && !catalogue.isEmpty()
+                ? getParameterStates(em, centreId, pipelineId, genotypeId,
+                        strainId, procedureId)
+                : null;
+        List<ParameterData> pdl = new ArrayList<>(catalogue.size());
+        for (ParameterData entry : catalogue) {
+            ParameterData pd = new ParameterData(entry);
+
+            /* fill context state */
+            if (updateState) {
+                Object[] r = states.get(pd.getParameterId());
+                if (r == null || r[1] == null) {
+                    pd.setStateId((short) 0); /* default: no data */
+                } else {
+                    pd.setStateId(((Number) r[1]).shortValue());
+                    pd.setNumUnresolved(r[2] == null
+                            ? 0L : ((Number) r[2]).longValue());
+                }
+            }
+            pdl.add(pd);
+        }
+        return pdl;
+    }
+
+    /* Returns the IMPReSS details of the parameters in the procedure,
+     * sorted for display, or null if the procedure does not exist. These
+     * are shared between requests (see ParameterCatalogue), so they must
+     * not be modified. */
+    private List<ParameterData> getCatalogue(EntityManager em,
+            Integer procedureId) {
+        ParameterCatalogue cache
+                = (ParameterCatalogue) getServletContext().getAttribute("ParameterCatalogue");
+        List<ParameterData> catalogue = cache == null
+                ? null : cache.get(procedureId);
+        if (catalogue == null) {
+            Procedure pp = em.find(Procedure.class, procedureId);
+            if (pp == null) {
+                return null;
+            }
+            catalogue = new ArrayList<>();
+            Collection<ProcedureHasParameters> pphpc
+                    = pp.getProcedureHasParametersCollection();
+            if (pphpc != null) {
+                List<ProcedureHasParameters> list = new ArrayList<>(pphpc);
+                Collections.sort(list, comparator);
+                for (ProcedureHasParameters pphp : list) {
+                    Parameter p = pphp.getParameterId();
+                    if (p.getGraphType() == null
+                            || "procedureMetadata".equals(p.getType())) {
+                        continue;
+                    }
+                    ParameterData pd = new ParameterData();
+                    pd.setProcedureId(pphp.getProcedureId().getProcedureId());
+                    pd.setWeight(pphp.getWeight());
+                    catalogue.add(this.fillParameterDetails(pd, p));
+                }
+            }
+            if (cache != null) {
+                cache.put(procedureId, catalogue);
+            }
+        }
+        return catalogue;
+    }
+
+    /* Should be called after IMPReSS has been updated, so that the
+     * parameter details are prepared again instead of being served from
+     * the catalogue until they expire. */
+    @POST
+    @Path("catalogue/clear")
+    public void clearCatalogue(
+            @QueryParam("s") String sessionId,
+            @QueryParam("u") Integer userId) {
+        if (isValidSession(sessionId, userId)) {
+            ParameterCatalogue cache
+                    = (ParameterCatalogue) getServletContext().getAttribute("ParameterCatalogue");
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
     @GET
     @Path("extjs")
     @Produces(MediaType.APPLICATION_JSON)
@@ -216,17 +278,10 @@ public class ParameterDataFacadeREST extends AbstractFacade<Parameter> {
         if (isValidSession(sessionId, userId)) {
             List<ParameterData> pdl = null;
             EntityManager em = getEntityManager();
-            Procedure pp = em.find(Procedure.class, procedureId);
-            if (pp != null) {
-                Collection<ProcedureHasParameters> pphpc
-                        = pp.getProcedureHasParametersCollection();
-                if (pphpc != null) {
-                    List<ProcedureHasParameters> list
-                            = new ArrayList<>(pphpc);
-                    Collections.sort(list, comparator);
-                    pdl = this.getParameters(list, em, centreId,
-                            pipelineId, genotypeId, strainId, procedureId);
-                }
+            List<ParameterData> catalogue = getCatalogue(em, procedureId);
+            if (catalogue != null) {
+                pdl = this.getParameters(catalogue, em, centreId,
+                        pipelineId, genotypeId, strainId, procedureId);
             }
             em.close();
             p.setDataSet(pdl);
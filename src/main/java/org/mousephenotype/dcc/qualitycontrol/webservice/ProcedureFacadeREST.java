@@ -16,11 +16,11 @@
 package org.mousephenotype.dcc.qualitycontrol.webservice;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.TypedQuery;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
@@ -30,7 +30,7 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import org.mousephenotype.dcc.entities.impress.Pipeline;
 import org.mousephenotype.dcc.entities.impress.Procedure;
-import org.mousephenotype.dcc.entities.qc.StateAndUnresolvedIssuesCount;
+import org.mousephenotype.dcc.qualitycontrol.persistence.DataContextQueries;
 import org.mousephenotype.dcc.qualitycontrol.webservice.pack.ProcedurePack;
 
 /**
@@ -63,6 +63,43 @@ public class ProcedureFacadeREST extends AbstractFacade<Procedure> {
         return p;
     }
 
+    /* Retrieves the state and number of unresolved issues for all of the
+     * procedures with one grouped query, counting only the data contexts
+     * shown in the tool (see DataContextQueries). Procedures without any data
+     * context are marked as having no data. */
+    private void setProcedureStates(EntityManager em, List<Procedure> procedures,
+            Integer centreId, Integer pipelineId,
+            Integer genotypeId, Integer strainId) {
+        if (procedures.isEmpty()) {
+            return;
+        }
+        TypedQuery<Object[]> q = em.createQuery(
+                "SELECT d.pid, MAX(d.stateId.cid), SUM(d.numIssues - d.numResolved) "
+                + "FROM DataContext d " + DataContextQueries.JOINS
+                + " WHERE (d.cid = :centreId AND d.lid = :pipelineId "
+                + "AND d.gid = :genotypeId AND d.sid = :strainId "
+                + "AND " + DataContextQueries.VISIBLE + ") "
+                + "GROUP BY d.pid", Object[].class);
+        q.setParameter("centreId", centreId);
+        q.setParameter("pipelineId", pipelineId);
+        q.setParameter("genotypeId", genotypeId);
+        q.setParameter("strainId", strainId);
+        Map<Integer, Object[]> states = new HashMap<>();
+        for (Object[] r : q.getResultList()) {
+            states.put(((Number) r[0]).intValue(), r);
+        }
+        for (Procedure proc : procedures) {
+            Object[] r = states.get(proc.getProcedureId());
+            if (r == null || r[1] == null) {
+                proc.setStateId((short) 0); /* default: no data */
+            } else {
+                proc.setStateId(((Number) r[1]).shortValue());
+                proc.setNumUnresolved(r[2] == null
+                        ? 0L : ((Number) r[2]).longValue());
+            }
+        }
+    }
+
     @GET
     @Path("extjs")
     @Produces(MediaType.APPLICATION_JSON)
@@ -86,32 +123,8 @@ public class ProcedureFacadeREST extends AbstractFacade<Procedure> {
                 if (centreId != null && centreId > -1 && pipelineId > -1
                         && genotypeId != null && genotypeId > -1
                         && strainId != null && strainId > -1) {
-                    Iterator<Procedure> i = temp.iterator();
-                    if (i.hasNext()) {
-                        TypedQuery<StateAndUnresolvedIssuesCount> c =
-                                em.createNamedQuery(
-                                "DataContext.findProcedureState",
-                                StateAndUnresolvedIssuesCount.class);
-                        c.setParameter("centreId", centreId);
-                        c.setParameter("pipelineId", pipelineId);
-                        c.setParameter("genotypeId", genotypeId);
-                        c.setParameter("strainId", strainId);
-
-                        while (i.hasNext()) {
-                            Procedure proc = i.next();
-                            c.setParameter("procedureId", proc.getProcedureId());
-                            try {
-                                StateAndUnresolvedIssuesCount stateAndCount =
-                                        c.getSingleResult();
-                                if (stateAndCount != null) {
-                                    proc.setStateId(stateAndCount.getStateId());
-                                    proc.setNumUnresolved(stateAndCount.getNumUnresolved());
-                                }
-                            } catch (NoResultException e) {
-                                proc.setStateId((short) 0); /* default: no data */
-                            }
-                        }
-                    }
+                    setProcedureStates(em, temp, centreId, pipelineId,
+                            genotypeId, strainId);
                 }
                 p.setDataSet(temp);
             }
@@ -17,6 +17,7 @@ package org.mousephenotype.dcc.qualitycontrol.webservice;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -28,14 +29,22 @@ import javax.persistence.criteria.*;
 import javax.ws.rs.*;
 import javax.ws.rs.Path;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
+import org.mousephenotype.dcc.qualitycontrol.cache.ExpiringCache;
+import org.mousephenotype.dcc.qualitycontrol.cache.SpecimenNameIndex;
+import org.mousephenotype.dcc.qualitycontrol.cache.SpecimenNameIndices;
 import org.mousephenotype.dcc.qualitycontrol.entities.ProcedureSpecimen;
+import org.mousephenotype.dcc.qualitycontrol.persistence.ProcedureSpecimenQueries;
+import org.mousephenotype.dcc.qualitycontrol.persistence.ProcedureSpecimenQueries.Filter;
+import org.mousephenotype.dcc.qualitycontrol.persistence.ProcedureSpecimenQueries.Keyset;
 import org.mousephenotype.dcc.entities.impress.Pipeline;
 import org.mousephenotype.dcc.entities.overviews.AnimalOverview;
 import org.mousephenotype.dcc.entities.overviews.ProcedureAnimalOverview;
 import org.mousephenotype.dcc.qualitycontrol.webservice.pack.ProcedureSpecimenPack;
+import org.mousephenotype.dcc.qualitycontrol.webservice.pack.StreamingPack;
 
 /**
  *
@@ -45,83 +54,95 @@ import org.mousephenotype.dcc.qualitycontrol.webservice.pack.ProcedureSpecimenPa
 @Path("procedurespecimens")
 public class ProcedureSpecimenFacadeREST extends AbstractFacade<ProcedureSpecimen> {
 
+    /* specimen name search */
+    private static final int MAX_IN_LIST_SIZE = 1000;
+
     public ProcedureSpecimenFacadeREST() {
         super(ProcedureSpecimen.class);
     }
 
-    private class OrderbyAndEntity {
+    /* Converts a value sent by the client to the type of the attribute
+     * it is compared with. Dates are sent as milliseconds. */
+    private Object toAttributeValue(EntityManager em, Class<?> entity,
+            String attribute, String value) {
+        Class<?> type = em.getMetamodel().entity(entity)
+                .getAttribute(attribute).getJavaType();
+        if (Date.class.isAssignableFrom(type)) {
+            return new Date(Long.parseLong(value));
+        } else if (type == Integer.class || type == int.class) {
+            return Integer.valueOf(value);
+        } else if (type == Long.class || type == long.class) {
+            return Long.valueOf(value);
+        } else if (type == Short.class || type == short.class) {
+            return Short.valueOf(value);
+        } else if (type == BigInteger.class) {
+            return new BigInteger(value);
+        } else {
+            return value;
+        }
+    }
 
-        boolean usePao;
-        String orderBy;
-    };
+    /* the total number of records for recently listed data contexts and
+     * searches (see CacheListener) */
+    @SuppressWarnings("unchecked")
+    private ExpiringCache<String, Long> getCountCache() {
+        return (ExpiringCache<String, Long>) getServletContext()
+                .getAttribute("SpecimenCountCache");
+    }
 
-    private OrderbyAndEntity decodeAnimalOverview(String o) {
-        OrderbyAndEntity r = new OrderbyAndEntity();
-        r.usePao = false;
-        if ("n".equals(o)) {
-            r.orderBy = "animalName";
-        } else {
-            if ("c".equals(o)) {
-                r.orderBy = "cohortName";
-            } else {
-                if ("d".equals(o)) {
-                    r.orderBy = "dob";
-                } else {
-                    if ("l".equals(o)) {
-                        r.orderBy = "litter";
-                    } else {
-                        r.orderBy = o;
-                        r.usePao = true;
-                    }
-                }
-            }
+    /* Returns the animal ids of the specimens whose name contains the
+     * supplied string (see SpecimenNameIndices), or null if the name must
+     * be matched in the database instead: when the string has LIKE
+     * wildcards, when the index is not ready yet, or when there are too
+     * many ids to list in a query. */
+    private List<Object> findSpecimensByName(EntityManager em,
+            Integer cid, Integer lid, Integer gid, Integer sid, String peid,
+            String name) {
+        if (SpecimenNameIndex.hasWildcards(name)) {
+            return null;
         }
-        return r;
+        SpecimenNameIndices indices = (SpecimenNameIndices) getServletContext()
+                .getAttribute("SpecimenNameIndices");
+        List<Object> ids = indices == null
+                ? null : indices.find(em, cid, lid, gid, sid, peid, name);
+        return ids == null || ids.size() > MAX_IN_LIST_SIZE ? null : ids;
     }
 
-    private OrderbyAndEntity decode(String o) {
-        OrderbyAndEntity r = new OrderbyAndEntity();
-        r.usePao = true;
-        if ("ai".equals(o)) {
-            r.orderBy = "animalId";
+    private void setParameters(TypedQuery<?> q, Integer cid, Integer lid,
+            Integer gid, Integer sid, String peid,
+            BigInteger specimenIdQuery, List<Object> nameMatches,
+            String specimenNameQuery) {
+        if (specimenIdQuery != null) {
+            q.setParameter("aid", specimenIdQuery);
+        } else if (nameMatches != null) {
+            q.setParameter("aids", nameMatches);
         } else {
-            if ("s".equals(o)) {
-                r.orderBy = "sex";
-            } else {
-                if ("sd".equals(o)) {
-                    r.orderBy = "startDate";
-                } else {
-                    if ("e".equals(o)) {
-                        r.orderBy = "experimenter";
-                    } else {
-                        if ("z".equals(o)) {
-                            r.orderBy = "zygosity";
-                        } else {
-                            if ("en".equals(o)) {
-                                r.orderBy = "equipmentname";
-                            } else {
-                                if ("em".equals(o)) {
-                                    r.orderBy = "equipmentmodel";
-                                } else {
-                                    if ("et".equals(o)) {
-                                        r.orderBy = "equipmentmanufacturer";
-                                    } else {
-                                        r = decodeAnimalOverview(o);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
+            if (specimenNameQuery != null) {
+                q.setParameter("aname", specimenNameQuery);
             }
         }
-        return r;
+        q.setParameter("cid", cid);
+        q.setParameter("lid", lid);
+        q.setParameter("gid", gid);
+        q.setParameter("sid", sid);
+        q.setParameter("peid", peid);
+    }
+
+    /* clients that ask for a streamed response get one, even if there are
+     * no records to stream (see StreamingPack) */
+    private Response getEmptyStream(boolean sessionHasExpired) {
+        StreamingPack<ProcedureSpecimen> sp
+                = new StreamingPack<>(createEntityManager(), "procedurespecimens");
+        if (sessionHasExpired) {
+            sp.sessionHasExpired();
+        }
+        return Response.ok(sp).build();
     }
 
     @GET
     @Path("extjs")
     @Produces(MediaType.APPLICATION_JSON)
-    public ProcedureSpecimenPack extjsFindBy(
+    public Response extjsFindBy(
             @QueryParam("cid") Integer cid,
             @QueryParam("lid") Integer lid,
             @QueryParam("gid") Integer gid,
@@ -134,18 +155,28 @@ public class ProcedureSpecimenFacadeREST extends AbstractFacade<ProcedureSpecime
             @QueryParam("a") BigInteger specimenIdQuery,
             @QueryParam("s") String sessionId,
             @QueryParam("u") Integer userId,
-            @QueryParam("unique") Boolean uniqueSpecimens) {
+            @QueryParam("unique") Boolean uniqueSpecimens,
+            @QueryParam("stream") Boolean stream,
+            @QueryParam("ak") String afterKey,
+            @QueryParam("aa") String afterAnimalId,
+            @QueryParam("ao") String afterOccurrenceId) {
         ProcedureSpecimenPack t = new ProcedureSpecimenPack();
         if (!isValidSession(sessionId, userId)) {
             t.setSuccess(false);
-            return t;
+            if (stream != null && stream) {
+                return getEmptyStream(true);
+            }
+            return Response.ok(t).build();
         }
 
         if (cid == null || lid == null || gid == null || sid == null || peid == null) {
+            if (stream != null && stream) {
+                return getEmptyStream(false);
+            }
             t.setDataSet(null, 0L);
         } else {
             // by default, sort in reverse chronological order
-            String orderBy = "startDate";
+            String orderBy = ProcedureSpecimenQueries.DEFAULT_SORT;
             String direction = "DESC";
             if (uniqueSpecimens == null) {
                 uniqueSpecimens = false;
@@ -164,74 +195,138 @@ public class ProcedureSpecimenFacadeREST extends AbstractFacade<ProcedureSpecime
             }
 
             EntityManager em = getEntityManager();
-            StringBuilder condition = new StringBuilder("from ProcedureAnimalOverview pao, AnimalOverview ao, Pipeline l WHERE pao.animalId = ao.animalId AND pao.pipeline = l.pipelineKey AND pao.centreId = :cid AND l.pipelineId = :lid AND pao.genotypeId = :gid AND pao.strainId = :sid AND pao.procedureId = :peid");
 
+            List<Object> nameMatches = null;
+            Filter filter = Filter.NONE;
             if (specimenIdQuery != null) {
-                condition.append(" AND pao.animalId = :aid");
+                filter = Filter.ANIMAL_ID;
             } else {
                 if (specimenNameQuery != null) {
-                    specimenNameQuery = '%' + specimenNameQuery + '%';
-                    condition.append(" AND pao.animalName like :aname");
+                    nameMatches = findSpecimensByName(em, cid, lid, gid, sid,
+                            peid, specimenNameQuery);
+                    if (nameMatches == null) {
+                        specimenNameQuery = '%' + specimenNameQuery + '%';
+                        filter = Filter.ANIMAL_NAME;
+                    } else if (nameMatches.isEmpty()) {
+                        // the index is trusted, so there is nothing to list
+                        if (stream != null && stream) {
+                            em.close();
+                            return getEmptyStream(false);
+                        }
+                        t.setDataSet(new ArrayList<ProcedureSpecimen>(), 0L);
+                        em.close();
+                        return Response.ok(t).build();
+                    } else {
+                        filter = Filter.ANIMAL_IDS;
+                    }
                 }
             }
 
-            TypedQuery<Long> qCount = em.createQuery(
-                    "SELECT count(" + (uniqueSpecimens ? "distinct" : "")
-                    + " pao.animalId) " + condition.toString(), Long.class);
-            if (specimenIdQuery != null) {
-                qCount.setParameter("aid", specimenIdQuery);
-            } else {
-                if (specimenNameQuery != null) {
-                    qCount.setParameter("aname", specimenNameQuery);
+            // the total only changes when new data is uploaded, so we do
+            // not have to count the records again for every page
+            String countKey = cid + ":" + lid + ":" + gid + ":" + sid + ":"
+                    + peid + ":" + uniqueSpecimens + ":" + specimenIdQuery
+                    + ":" + specimenNameQuery;
+            ExpiringCache<String, Long> countCache = getCountCache();
+            Long total = countCache == null ? null : countCache.get(countKey);
+            if (total == null) {
+                TypedQuery<Long> qCount = ProcedureSpecimenQueries
+                        .createCountQuery(em, filter, uniqueSpecimens);
+                setParameters(qCount, cid, lid, gid, sid, peid,
+                        specimenIdQuery, nameMatches, specimenNameQuery);
+                qCount.setMaxResults(1);
+                total = qCount.getSingleResult();
+                if (countCache != null) {
+                    countCache.put(countKey, total);
                 }
             }
-            qCount.setParameter("cid", cid);
-            qCount.setParameter("lid", lid);
-            qCount.setParameter("gid", gid);
-            qCount.setParameter("sid", sid);
-            qCount.setParameter("peid", peid);
-            qCount.setMaxResults(1);
-            Long total = qCount.getSingleResult();
-
-            String selectQuery;
-            if (uniqueSpecimens) {
-                selectQuery = "SELECT new org.mousephenotype.dcc.qualitycontrol.entities.ProcedureSpecimen(ao.animalId, pao.procedureOccurrenceId, ao.animalName, ao.cohortName, pao.sex, pao.zygosity, ao.dob, ao.litter, pao.pipeline, pao.experimenter, MIN(pao.startDate), pao.equipmentname, pao.equipmentmodel, pao.equipmentmanufacturer)";
-                condition.append(" GROUP BY pao.animalId");
-            } else {
-                selectQuery = "SELECT new org.mousephenotype.dcc.qualitycontrol.entities.ProcedureSpecimen(ao.animalId, pao.procedureOccurrenceId, ao.animalName, ao.cohortName, pao.sex, pao.zygosity, ao.dob, ao.litter, pao.pipeline, pao.experimenter, pao.startDate, pao.equipmentname, pao.equipmentmodel, pao.equipmentmanufacturer)";
-            }
 
             // how should we order the records?
-            // Note that we have to ensure that we are choosing the correct
-            // table and column to do the sorting.
-            OrderbyAndEntity soe = decode(orderBy);
-            condition.append(" ORDER BY ");
-            condition.append(soe.usePao ? "pao." : "ao.");
-            condition.append(soe.orderBy);
-            condition.append(" ");
-            condition.append(direction);
-
-            TypedQuery<ProcedureSpecimen> q = em.createQuery(selectQuery + condition.toString(), ProcedureSpecimen.class);
-            if (specimenIdQuery != null) {
-                q.setParameter("aid", specimenIdQuery);
-            } else {
-                if (specimenNameQuery != null) {
-                    q.setParameter("aname", specimenNameQuery);
+            if (!ProcedureSpecimenQueries.isSortable(orderBy)) {
+                orderBy = ProcedureSpecimenQueries.DEFAULT_SORT;
+            }
+            boolean ascending = "ASC".equalsIgnoreCase(direction);
+
+            // With keyset paging, the client sends the sort value, animal
+            // id and procedure occurrence id of the last record it has, and
+            // we continue from that record instead of skipping 'start'
+            // records. An absent sort value means that it was null.
+            Keyset keyset = Keyset.NONE;
+            Object ak = null, aa = null, ao = null;
+            if (!uniqueSpecimens
+                    && afterAnimalId != null && afterOccurrenceId != null) {
+                try {
+                    Class<?> entity = ProcedureSpecimenQueries.isAnimalOverviewColumn(orderBy)
+                            ? AnimalOverview.class : ProcedureAnimalOverview.class;
+                    if (afterKey != null) {
+                        ak = toAttributeValue(em, entity,
+                                ProcedureSpecimenQueries.getSortAttribute(orderBy),
+                                afterKey);
+                    }
+                    aa = toAttributeValue(em, ProcedureAnimalOverview.class,
+                            "animalId", afterAnimalId);
+                    ao = toAttributeValue(em, ProcedureAnimalOverview.class,
+                            "procedureOccurrenceId", afterOccurrenceId);
+                    keyset = ak == null ? Keyset.AFTER_NULL : Keyset.AFTER_VALUE;
+                } catch (IllegalArgumentException e) {
+                    keyset = Keyset.NONE;
                 }
             }
-            q.setParameter("cid", cid);
-            q.setParameter("lid", lid);
-            q.setParameter("gid", gid);
-            q.setParameter("sid", sid);
-            q.setParameter("peid", peid);
-            q.setFirstResult(start);
-            q.setMaxResults(limit);
+
+            // a streamed query is read through a cursor after we return,
+            // so it needs an entity manager of its own (see StreamingPack)
+            boolean streamed = stream != null && stream;
+            EntityManager qem = streamed ? createEntityManager() : em;
+            TypedQuery<ProcedureSpecimen> q = ProcedureSpecimenQueries
+                    .createSelectQuery(qem, orderBy, ascending, filter,
+                            uniqueSpecimens, keyset);
+            setParameters(q, cid, lid, gid, sid, peid,
+                    specimenIdQuery, nameMatches, specimenNameQuery);
+            if (keyset != Keyset.NONE) {
+                if (ak != null) {
+                    q.setParameter("ak", ak);
+                }
+                q.setParameter("aa", aa);
+                q.setParameter("ao", ao);
+            } else if (start != null) {
+                q.setFirstResult(start);
+            }
+            if (limit != null) {
+                q.setMaxResults(limit);
+            }
+
+            // write the records while they are being read
+            if (streamed) {
+                em.close();
+                StreamingPack<ProcedureSpecimen> sp
+                        = new StreamingPack<>(qem, "procedurespecimens");
+                sp.setTotal(total);
+                sp.addQuery(q);
+                return Response.ok(sp).build();
+            }
             List<ProcedureSpecimen> result = q.getResultList();
 
             // all done, return the JSON response
             t.setDataSet(result, total);
             em.close();
         }
-        return t;
+        return Response.ok(t).build();
+    }
+
+    /* Should be called after specimens were renamed or removed, so that
+     * name searches do not use the old names until the indices are
+     * rebuilt. */
+    @POST
+    @Path("names/clear")
+    public void clearNameIndices(
+            @QueryParam("s") String sessionId,
+            @QueryParam("u") Integer userId) {
+        if (isValidSession(sessionId, userId)) {
+            SpecimenNameIndices indices = (SpecimenNameIndices) getServletContext()
+                    .getAttribute("SpecimenNameIndices");
+            if (indices != null) {
+                indices.clear();
+            }
+        }
     }
 }
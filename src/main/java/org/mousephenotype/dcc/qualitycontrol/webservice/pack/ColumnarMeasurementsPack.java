@@ -0,0 +1,177 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.webservice.pack;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.mousephenotype.dcc.entities.overviews.MeasuredValues;
+import org.mousephenotype.dcc.entities.overviews.MetadataGroupToValues;
+
+/**
+ * Response package for measurements in column-major order.
+ *
+ * Instead of sending a JSON object for every measurement, we send one array
+ * for every field, where the n-th element of each array belongs to the n-th
+ * measurement. The field names are the same as the ones used in the row-major
+ * MeasurementsPack, so that the client can load each array directly into a
+ * typed array.
+ *
+ * Jersey's mapped JAXB provider writes numbers as strings, and a list with
+ * one element as a scalar, so this pack is written with the same Jackson
+ * mapper as StreamingPack instead. Every column is an array of JSON numbers
+ * (or null), and dates are milliseconds since the epoch. Increments and
+ * values are stored as strings, so they are converted to numbers here, and
+ * are null if they are not numeric; hence, clients should only ask for this
+ * format when the parameter has numeric values and increments (categorical
+ * values and date increments are only available in MeasurementsPack).
+ *
+ * @author agent <agent@local>
+ */
+public class ColumnarMeasurementsPack implements StreamingOutput {
+
+    private boolean success = false;
+    private long total = 0L; /* if negative, gives error code */
+    private List<MetadataGroupToValues> metadataGroups;
+    private List<Long> measurementIds = new ArrayList<>();
+    private List<Long> animalIds = new ArrayList<>();
+    private List<Integer> genotypeIds = new ArrayList<>();
+    private List<Integer> sexes = new ArrayList<>();
+    private List<Integer> zygosities = new ArrayList<>();
+    private List<Long> dates = new ArrayList<>();
+    private List<Double> increments = new ArrayList<>();
+    private List<Double> values = new ArrayList<>();
+    private List<Long> metadataGroupIndices = new ArrayList<>();
+
+    public List<MetadataGroupToValues> getMetadataGroups() {
+        return metadataGroups;
+    }
+
+    public void setMetadataGroups(List<MetadataGroupToValues> metadataGroups) {
+        this.metadataGroups = metadataGroups;
+    }
+
+    private static Long toLong(Number n) {
+        return n == null ? null : n.longValue();
+    }
+
+    private static Integer toInteger(Number n) {
+        return n == null ? null : n.intValue();
+    }
+
+    /* returns null if the string is not a finite decimal number */
+    private static Double toDouble(String s) {
+        if (s != null) {
+            try {
+                double d = new BigDecimal(s.trim()).doubleValue();
+                if (!Double.isInfinite(d)) {
+                    return d;
+                }
+            } catch (NumberFormatException e) {
+            }
+        }
+        return null;
+    }
+
+    private void fillColumns(List<MeasuredValues> dataSet) {
+        int n = dataSet == null ? 0 : dataSet.size();
+        measurementIds = new ArrayList<>(n);
+        animalIds = new ArrayList<>(n);
+        genotypeIds = new ArrayList<>(n);
+        sexes = new ArrayList<>(n);
+        zygosities = new ArrayList<>(n);
+        dates = new ArrayList<>(n);
+        increments = new ArrayList<>(n);
+        values = new ArrayList<>(n);
+        metadataGroupIndices = new ArrayList<>(n);
+        if (dataSet != null) {
+            for (MeasuredValues m : dataSet) {
+                Date d = m.getStartDate();
+                measurementIds.add(toLong(m.getMeasurementId()));
+                animalIds.add(toLong(m.getAnimalId()));
+                genotypeIds.add(toInteger(m.getGenotypeId()));
+                sexes.add(toInteger(m.getSex()));
+                zygosities.add(toInteger(m.getZygosity()));
+                dates.add(d == null ? null : d.getTime());
+                increments.add(toDouble(m.getIncrement()));
+                values.add(toDouble(m.getValue()));
+                metadataGroupIndices.add(toLong(m.getMetadataGroupIndex()));
+            }
+        }
+    }
+
+    public void setDataSet(List<MeasuredValues> dataSet) {
+        setDataSet(dataSet, dataSet == null ? 0L : dataSet.size());
+    }
+
+    public void setDataSet(List<MeasuredValues> dataSet, long total) {
+        fillColumns(dataSet);
+        if (dataSet == null || dataSet.isEmpty()) {
+            this.success = false;
+        } else {
+            this.success = true;
+            this.total = total;
+        }
+    }
+
+    public void sessionHasExpired() {
+        this.success = false;
+        this.total = -401;
+    }
+
+    private static <T> void writeColumn(JsonGenerator g, String name,
+            List<T> column) throws IOException {
+        g.writeArrayFieldStart(name);
+        for (T value : column) {
+            g.writeObject(value);
+        }
+        g.writeEndArray();
+    }
+
+    @Override
+    public void write(OutputStream output)
+            throws IOException, WebApplicationException {
+        ObjectMapper mapper = StreamingPack.getMapper();
+        JsonGenerator g = mapper.getJsonFactory()
+                .createJsonGenerator(output, JsonEncoding.UTF8);
+        g.writeStartObject();
+        g.writeBooleanField("success", success);
+        g.writeNumberField("total", total);
+        writeColumn(g, "m", measurementIds);
+        writeColumn(g, "a", animalIds);
+        writeColumn(g, "g", genotypeIds);
+        writeColumn(g, "s", sexes);
+        writeColumn(g, "z", zygosities);
+        writeColumn(g, "d", dates);
+        writeColumn(g, "i", increments);
+        writeColumn(g, "v", values);
+        writeColumn(g, "e", metadataGroupIndices);
+        if (metadataGroups != null) {
+            g.writeFieldName("metadataGroups");
+            mapper.writeValue(g, metadataGroups);
+        }
+        g.writeEndObject();
+        g.flush();
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.webservice.pack;
+
+import java.util.List;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlSeeAlso;
+import javax.xml.bind.annotation.XmlType;
+import org.mousephenotype.dcc.qualitycontrol.entities.ConnectionPoolStatistics;
+
+/**
+ *
+ * @author agent <agent@local>
+ */
+@XmlSeeAlso(ConnectionPoolStatistics.class)
+@XmlType(propOrder = {"success", "total", "connectionpools"})
+public class ConnectionPoolPack extends AbstractRestResponse<ConnectionPoolStatistics> {
+
+    @Override
+    @XmlElement(name = "connectionpools")
+    public List<ConnectionPoolStatistics> getDataSet() {
+        return super.getDataSet();
+    }
+}
@@ -23,7 +23,7 @@ import org.mousephenotype.dcc.qualitycontrol.entities.KeyValueRecord;
 
 /**
  * Response package for fertility data returned by the 
- * FertilityFacadeREST web service.
+ * LineLevelFacadeREST web service.
  * 
  * @author Gagarine Yaikhom <g.yaikhom@har.mrc.ac.uk>
  */
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.webservice.pack;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.SerializationConfig;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+import org.codehaus.jackson.xc.JaxbAnnotationIntrospector;
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.queries.CursoredStream;
+
+/**
+ * Response package that is written to the client while the records are
+ * being read from the database.
+ *
+ * The packs derived from AbstractRestResponse keep the entire data set in
+ * memory until it has been serialised. For large data sets, this pack
+ * instead reads the query results through a database cursor and writes each
+ * chunk of records to the client before reading the next.
+ *
+ * The JSON has the same field names as the corresponding AbstractRestResponse
+ * pack, since the records are serialised using their JAXB annotations.
+ * However, it is written by Jackson instead of Jersey's mapped JAXB provider,
+ * so the values are written differently:
+ *
+ * - numbers and booleans are JSON numbers and booleans, not strings;
+ * - dates are milliseconds since the epoch, not xs:dateTime strings;
+ * - null fields are left out;
+ * - arrays with one element are still arrays;
+ * - there is no message field.
+ *
+ * As with the list packs, success is false and total is zero if there are
+ * no records, and total is -401 if the session has expired. Clients that
+ * ask for a streamed response always get one, even when there is nothing
+ * to stream.
+ *
+ * The response is written after the facade method has returned, so the
+ * pack must be given an entity manager of its own, which is closed once the
+ * response has been written. It must not be the entity manager bound to the
+ * request (see EntityManagerFilter): with the MySQL driver, no other query
+ * can be run on a connection while a streaming result set is open on it, so
+ * any lookups in prepare() must use a different entity manager.
+ *
+ * @author agent <agent@local>
+ */
+public class StreamingPack<T> implements StreamingOutput {
+
+    /* number of records to read from the cursor at a time */
+    private static final int CHUNK_SIZE = 500;
+
+    /* with the MySQL driver, this makes the result set stream rows */
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    static {
+        mapper.setAnnotationIntrospector(new JaxbAnnotationIntrospector());
+        mapper.setSerializationInclusion(JsonSerialize.Inclusion.NON_NULL);
+        mapper.configure(SerializationConfig.Feature.FLUSH_AFTER_WRITE_VALUE, false);
+        mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+    }
+
+    /* shared with the other packs that are written by Jackson */
+    static ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    private final EntityManager em;
+    private final String dataSetName;
+    private final List<Query> queries = new ArrayList<>();
+    private Long total = null;
+    private boolean sessionHasExpired = false;
+
+    public StreamingPack(EntityManager em, String dataSetName) {
+        this.em = em;
+        this.dataSetName = dataSetName;
+    }
+
+    /* the records returned by the queries are written in the order that
+     * the queries were added */
+    public void addQuery(Query query) {
+        query.setHint(QueryHints.CURSOR, HintValues.TRUE);
+        query.setHint(QueryHints.CURSOR_PAGE_SIZE, CHUNK_SIZE);
+        query.setHint(QueryHints.JDBC_FETCH_SIZE, STREAMING_FETCH_SIZE);
+        queries.add(query);
+    }
+
+    /* if unset, the total is the number of records that were written */
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    /* writes no records, and a total of -401 */
+    public void sessionHasExpired() {
+        this.sessionHasExpired = true;
+        this.queries.clear();
+    }
+
+    /* called with every chunk of records before they are written; returns
+     * the records to write, so that derived packs can leave some out */
+    protected List<T> prepare(List<T> chunk) {
+        return chunk;
+    }
+
+    /* called after all of the records have been written, so that derived
+     * packs can add further properties */
+    protected void writeProperties(JsonGenerator g) throws IOException {
+    }
+
+    @Override
+    public void write(OutputStream output)
+            throws IOException, WebApplicationException {
+        JsonGenerator g = mapper.getJsonFactory()
+                .createJsonGenerator(output, JsonEncoding.UTF8);
+        long count = 0L;
+        try {
+            g.writeStartObject();
+            g.writeArrayFieldStart(dataSetName);
+            for (Query query : queries) {
+                CursoredStream cursor = (CursoredStream) query.getSingleResult();
+                try {
+                    while (cursor.hasNext()) {
+                        @SuppressWarnings("unchecked")
+                        List<T> chunk = prepare((List<T>) cursor.next(CHUNK_SIZE));
+                        for (T record : chunk) {
+                            mapper.writeValue(g, record);
+                        }
+                        count += chunk.size();
+                        cursor.releasePrevious();
+                        g.flush();
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+            g.writeEndArray();
+            writeProperties(g);
+            g.writeBooleanField("success", count > 0L);
+            g.writeNumberField("total", sessionHasExpired ? -401L
+                    : (count == 0L ? 0L : (total == null ? count : total)));
+            g.writeEndObject();
+            g.flush();
+        } finally {
+            em.close();
+        }
+    }
+}
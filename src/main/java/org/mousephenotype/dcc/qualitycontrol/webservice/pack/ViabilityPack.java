@@ -22,8 +22,8 @@ import javax.xml.bind.annotation.XmlType;
 import org.mousephenotype.dcc.qualitycontrol.entities.KeyValueRecord;
 
 /**
- * Response package for fertility data returned by the 
- * FertilityFacadeREST web service.
+ * Response package for viability and embryo viability data returned by the
+ * LineLevelFacadeREST web service.
  * 
  * @author Gagarine Yaikhom <g.yaikhom@har.mrc.ac.uk>
  */
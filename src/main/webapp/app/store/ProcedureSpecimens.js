@@ -22,5 +22,62 @@ Ext.define('PhenoDCC.store.ProcedureSpecimens', {
     extend: 'Ext.data.Store',
     requires: 'PhenoDCC.model.ProcedureSpecimen',    
     model: 'PhenoDCC.model.ProcedureSpecimen',
-    remoteSort: true
+    remoteSort: true,
+
+    /* must match ProcedureSpecimenQueries.DEFAULT_SORT on the server */
+    defaultSortProperty: 'sd',
+
+    /**
+     * Keyset paging: when the next page is requested with the same
+     * filters, sorting and page size, we send the sort value (ak), animal
+     * id (aa) and procedure occurrence id (ao) of the last record on the
+     * current page. The server then continues from that record, instead
+     * of skipping all of the records before the page. Any other page is
+     * retrieved using 'start'. The sort value is taken from the raw
+     * record, so that dates are sent in milliseconds; it is not sent if
+     * it is null. The server ignores these for unique specimens.
+     */
+    getPagingSignature: function(operation) {
+        var me = this, sorter = operation.sorters && operation.sorters[0];
+        return Ext.encode({
+            params: me.getProxy().extraParams,
+            limit: operation.limit,
+            property: sorter ? sorter.property : me.defaultSortProperty,
+            direction: sorter ? sorter.direction : 'DESC'
+        });
+    },
+
+    listeners: {
+        beforeload: function(store, operation) {
+            var last = store.lastPageLoaded,
+                params = Ext.apply({}, operation.params);
+            delete params.ak;
+            delete params.aa;
+            delete params.ao;
+            if (last && operation.page === last.page + 1 &&
+                last.signature === store.getPagingSignature(operation)) {
+                if (last.ak !== undefined && last.ak !== null) {
+                    params.ak = last.ak;
+                }
+                params.aa = last.aa;
+                params.ao = last.ao;
+            }
+            operation.params = params;
+        },
+        load: function(store, records, successful, operation) {
+            var raw, sorter;
+            store.lastPageLoaded = null;
+            if (successful && records && records.length > 0) {
+                raw = records[records.length - 1].raw;
+                sorter = operation.sorters && operation.sorters[0];
+                store.lastPageLoaded = {
+                    page: operation.page,
+                    signature: store.getPagingSignature(operation),
+                    ak: raw[sorter ? sorter.property : store.defaultSortProperty],
+                    aa: raw.ai,
+                    ao: raw.oi
+                };
+            }
+        }
+    }
 });
@@ -2967,6 +2967,50 @@
             .text('No measurements to visualise');
     }
 
+    /**
+     * Can the measurements be retrieved in column-major order? The columnar
+     * format only has numeric values and increments, so it cannot be used
+     * for categorical or date values, or for date increments.
+     *
+     * @param {Object} plotType Plot type of the parameter.
+     * @returns {Boolean} True if the columnar format can be used.
+     */
+    function isColumnar(plotType) {
+        return plotType && plotType.t !== 'nominal' &&
+            (plotType.yt === 'i' || plotType.yt === 'f') &&
+            (plotType.t === 'point' || plotType.xt !== 'd');
+    }
+
+    /**
+     * Converts measurements in column-major order, where the n-th element of
+     * each column belongs to the n-th measurement, into one object for each
+     * measurement, as returned in row-major order. As in row-major order,
+     * missing increments and values are left undefined.
+     *
+     * @param {Object} data Measurements in column-major order.
+     * @returns {Array} Array of measurements.
+     */
+    function getMeasurementsFromColumns(data) {
+        var measurements = [], i, c = data.m.length, datum;
+        for (i = 0; i < c; ++i) {
+            datum = {
+                m: data.m[i], /* measurement id */
+                a: data.a[i], /* animal id */
+                g: data.g[i], /* genotype */
+                s: data.s[i], /* sex */
+                z: data.z[i], /* zygosity */
+                d: data.d[i], /* experiment start date */
+                e: data.e[i] /* metadata group */
+            };
+            if (data.i[i] !== null)
+                datum.i = data.i[i]; /* increment */
+            if (data.v[i] !== null)
+                datum.v = data.v[i]; /* measured value */
+            measurements.push(datum);
+        }
+        return measurements;
+    }
+
     /**
      * Retrieves raw measurements from the server and displays them in the
      * visualisation cluster. All calculations are also cached for future
@@ -2982,6 +3026,7 @@
      * @param {String} qeid Parameter key.
      */
     function retrieveAndVisualiseData(id, target, gid, sid, cid, lid, peid, qeid) {
+        var columnar = isColumnar(dcc.plotType);
         if (typeof retrieveMeasurementsRequest.abort === 'function')
             retrieveMeasurementsRequest.abort();
         retrieveMeasurementsRequest = d3.json('rest/measurements/extjs?' +
@@ -2995,11 +3040,14 @@
             '&peid=' + dcc.dataContext.peid +
             '&qid=' + dcc.dataContext.qid +
             '&qeid=' + dcc.dataContext.qeid +
-            '&ib=true',
+            '&ib=true' +
+            (columnar ? '&columnar=true' : ''),
             function (data) {
                 measurementLookUpTable = {};
                 selectedDatapoints.reset();
                 if (data && data.success) {
+                    if (columnar)
+                        data.measurements = getMeasurementsFromColumns(data);
                     processMeasurementsSplitByZygosity(data,
                         id, target, gid, sid, cid, lid, peid, qeid);
                 } else {
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.NoResultException;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+/**
+ * Entity manager for testing the classes that only run queries.
+ *
+ * The results of every query are supplied by a callback, which is given the
+ * JPQL and the parameters of the query. Named queries are registered with
+ * the entity manager factory as usual (the JPQL of a query registered with
+ * addNamedQuery() is the name), and creating a named query that has not
+ * been registered throws IllegalArgumentException. The JPQL of every query
+ * that was run is recorded. Other methods are not supported.
+ *
+ * @author agent <agent@local>
+ */
+public class FakeEntityManager {
+
+    public interface Results {
+
+        List<?> get(String jpql, Map<String, Object> parameters);
+    }
+
+    private final Results results;
+    private final Map<String, String> namedQueries = new ConcurrentHashMap<>();
+    private final List<String> executed
+            = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> created
+            = Collections.synchronizedList(new ArrayList<String>());
+    private final EntityManagerFactory emf;
+    private final EntityManager em;
+
+    public FakeEntityManager(Results results) {
+        this.results = results;
+        this.emf = (EntityManagerFactory) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{EntityManagerFactory.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method m, Object[] args) {
+                        switch (m.getName()) {
+                            case "addNamedQuery":
+                                namedQueries.put((String) args[0],
+                                        getJpql((Query) args[1]));
+                                return null;
+                            case "createEntityManager":
+                                return em;
+                            case "isOpen":
+                                return true;
+                            case "close":
+                                return null;
+                            default:
+                                return handleObjectMethod(proxy, m, args);
+                        }
+                    }
+                });
+        this.em = (EntityManager) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{EntityManager.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method m, Object[] args) {
+                        switch (m.getName()) {
+                            case "createQuery":
+                                if (!(args[0] instanceof String)) {
+                                    break;
+                                }
+                                created.add((String) args[0]);
+                                return createQuery((String) args[0]);
+                            case "createNamedQuery":
+                                String jpql = namedQueries.get((String) args[0]);
+                                if (jpql == null) {
+                                    throw new IllegalArgumentException(
+                                            "Unknown named query: " + args[0]);
+                                }
+                                return createQuery(jpql);
+                            case "getEntityManagerFactory":
+                                return emf;
+                            case "isOpen":
+                                return true;
+                            case "clear":
+                            case "close":
+                                return null;
+                            default:
+                                break;
+                        }
+                        return handleObjectMethod(proxy, m, args);
+                    }
+                });
+    }
+
+    private static Object handleObjectMethod(Object proxy, Method m,
+            Object[] args) {
+        switch (m.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Fake " + m.getDeclaringClass().getSimpleName();
+            default:
+                throw new UnsupportedOperationException(m.toString());
+        }
+    }
+
+    private static class QueryHandler implements InvocationHandler {
+
+        private final FakeEntityManager owner;
+        private final String jpql;
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        QueryHandler(FakeEntityManager owner, String jpql) {
+            this.owner = owner;
+            this.jpql = jpql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) {
+            switch (m.getName()) {
+                case "setParameter":
+                    if (args[0] instanceof String) {
+                        parameters.put((String) args[0], args[1]);
+                        return proxy;
+                    }
+                    break;
+                case "setMaxResults":
+                case "setFirstResult":
+                case "setHint":
+                    return proxy;
+                case "getResultList":
+                    return run();
+                case "getSingleResult":
+                    List<?> r = run();
+                    if (r.isEmpty()) {
+                        throw new NoResultException(jpql);
+                    }
+                    return r.get(0);
+                default:
+                    break;
+            }
+            return handleObjectMethod(proxy, m, args);
+        }
+
+        private List<?> run() {
+            owner.executed.add(jpql);
+            return new ArrayList<>(owner.results.get(jpql,
+                    new HashMap<>(parameters)));
+        }
+    }
+
+    private TypedQuery<?> createQuery(String jpql) {
+        return (TypedQuery<?>) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{TypedQuery.class},
+                new QueryHandler(this, jpql));
+    }
+
+    /* returns the JPQL of a query created by a fake entity manager */
+    public static String getJpql(Query q) {
+        return ((QueryHandler) Proxy.getInvocationHandler(q)).jpql;
+    }
+
+    public EntityManager getEntityManager() {
+        return em;
+    }
+
+    /* registers a named query whose JPQL is its name */
+    public void addNamedQuery(String name) {
+        namedQueries.put(name, name);
+    }
+
+    /* returns the JPQL of the queries that were run, in order */
+    public List<String> getExecuted() {
+        synchronized (executed) {
+            return new ArrayList<>(executed);
+        }
+    }
+
+    /* returns the JPQL passed to createQuery(), in order */
+    public List<String> getCreated() {
+        synchronized (created) {
+            return new ArrayList<>(created);
+        }
+    }
+
+    /* returns the number of queries run whose JPQL contains the string */
+    public int countExecuted(String fragment) {
+        int n = 0;
+        for (String jpql : getExecuted()) {
+            if (jpql.contains(fragment)) {
+                ++n;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+/**
+ * @author agent <agent@local>
+ */
+public class ExpiringCacheTest {
+
+    @Test
+    public void returnsWhatWasPutUntilItExpires() {
+        ExpiringCache<String, Long> c = new ExpiringCache<>(10, 60000L);
+        c.put("a", 1L);
+        assertEquals(Long.valueOf(1L), c.get("a"));
+        assertNull(c.get("b"));
+    }
+
+    @Test
+    public void expiredEntriesAreNotReturned() {
+        ExpiringCache<String, Long> c = new ExpiringCache<>(10, -1L);
+        c.put("a", 1L);
+        assertNull(c.get("a"));
+    }
+
+    @Test
+    public void discardsLeastRecentlyUsed() {
+        ExpiringCache<String, Long> c = new ExpiringCache<>(2, 60000L);
+        c.put("a", 1L);
+        c.put("b", 2L);
+        c.get("a");
+        c.put("c", 3L);
+        assertEquals(Long.valueOf(1L), c.get("a"));
+        assertNull(c.get("b"));
+        assertEquals(Long.valueOf(3L), c.get("c"));
+    }
+
+    @Test
+    public void removesAndClears() {
+        ExpiringCache<String, Long> c = new ExpiringCache<>(10, 60000L);
+        c.put("a", 1L);
+        c.put("b", 2L);
+        c.remove("a");
+        assertNull(c.get("a"));
+        assertEquals(Long.valueOf(2L), c.get("b"));
+        c.clear();
+        assertNull(c.get("b"));
+    }
+}
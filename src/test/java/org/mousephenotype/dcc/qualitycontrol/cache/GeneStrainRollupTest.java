@@ -0,0 +1,272 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.persistence.EntityManager;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.mousephenotype.dcc.qualitycontrol.FakeEntityManager;
+import org.mousephenotype.dcc.qualitycontrol.entities.GeneStrain;
+
+/**
+ * @author agent <agent@local>
+ */
+public class GeneStrainRollupTest {
+
+    private static final String LOAD = "d.cid = :cid";
+    private static final String UPDATE = "d.id IN :ids";
+    private static final String NAMED = "GeneStrain.findByCentrePipeline";
+
+    /* the data contexts in the database (id, gid, sid, state,
+     * unresolved), keyed by id */
+    private final Map<Long, Object[]> contexts = new ConcurrentHashMap<>();
+    private volatile List<GeneStrain> named = Collections.emptyList();
+    /* if set, run by the load query before it returns its results */
+    private volatile Runnable duringLoad;
+    private volatile long loadDelay;
+    private FakeEntityManager fake;
+    private EntityManager em;
+    private GeneStrainRollup rollup;
+
+    private void put(long id, int gid, int sid, int state, long unresolved) {
+        contexts.put(id, new Object[]{id, gid, sid, state, unresolved});
+    }
+
+    private static Object[] genotype(int gid, String geneSymbol) {
+        return new Object[]{gid, geneSymbol, "MGI:" + gid, "gene " + gid,
+            "allele " + gid, "genotype " + gid};
+    }
+
+    @Before
+    public void setUp() {
+        fake = new FakeEntityManager(new FakeEntityManager.Results() {
+            @Override
+            public List<?> get(String jpql, Map<String, Object> parameters) {
+                List<Object[]> r = new ArrayList<>();
+                if (jpql.contains("FROM Genotype g")) {
+                    for (Object id : (Collection<?>) parameters.get("ids")) {
+                        if (!id.equals(99)) {
+                            r.add(genotype((Integer) id,
+                                    id.equals(2) ? "akt0" : "Akt" + id));
+                        }
+                    }
+                } else if (jpql.contains("FROM Strain s")) {
+                    for (Object id : (Collection<?>) parameters.get("ids")) {
+                        r.add(new Object[]{id, id.equals(1) ? "B6N" : "C57"});
+                    }
+                } else if (jpql.equals(NAMED)) {
+                    return named;
+                } else if (jpql.contains(UPDATE)) {
+                    for (Object id : (Collection<?>) parameters.get("ids")) {
+                        Object[] c = contexts.get((Long) id);
+                        if (c != null) {
+                            r.add(c);
+                        }
+                    }
+                } else if (jpql.contains(LOAD)) {
+                    r.addAll(contexts.values());
+                    try {
+                        Thread.sleep(loadDelay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    Runnable hook = duringLoad;
+                    duringLoad = null;
+                    if (hook != null) {
+                        hook.run();
+                    }
+                }
+                return r;
+            }
+        });
+        fake.addNamedQuery(NAMED);
+        em = fake.getEntityManager();
+        rollup = new GeneStrainRollup(60000L);
+    }
+
+    private static String describe(List<GeneStrain> geneStrains) {
+        StringBuilder s = new StringBuilder();
+        for (GeneStrain g : geneStrains) {
+            s.append(g.getGid()).append('/').append(g.getSid())
+                    .append(':').append(g.getStateId())
+                    .append(':').append(g.getNumUnresolved()).append(' ');
+        }
+        return s.toString().trim();
+    }
+
+    @Test
+    public void rollsUpTheStateAndUnresolvedIssues() {
+        put(1L, 1, 1, 1, 2L);
+        put(2L, 1, 1, 3, 1L);
+        put(3L, 3, 1, 2, 0L);
+        assertEquals("1/1:3:3 3/1:2:0", describe(rollup.find(em, 1, 2)));
+    }
+
+    @Test
+    public void ordersByStrainAndGeneSymbolIgnoringCase() {
+        put(1L, 3, 2, 1, 0L);
+        put(2L, 3, 1, 1, 0L);
+        put(3L, 2, 1, 1, 0L);
+        put(4L, 1, 1, 1, 0L);
+        /* B6N: akt0 (2), Akt1 (1), Akt3 (3); then C57: Akt3 (3) */
+        List<GeneStrain> r = rollup.find(em, 1, 2);
+        assertEquals(Arrays.asList(2, 1, 3, 3), Arrays.asList(r.get(0).getGid(),
+                r.get(1).getGid(), r.get(2).getGid(), r.get(3).getGid()));
+        assertEquals("B6N", r.get(0).getStrain());
+        assertEquals("C57", r.get(3).getStrain());
+    }
+
+    @Test
+    public void skipsContextsWithoutGenotype() {
+        put(1L, 1, 1, 1, 0L);
+        put(2L, 99, 1, 1, 0L);
+        assertEquals("1/1:1:0", describe(rollup.find(em, 1, 2)));
+    }
+
+    @Test
+    public void returnsCopies() {
+        put(1L, 1, 1, 1, 0L);
+        rollup.find(em, 1, 2).get(0).setStateId((short) 5);
+        assertEquals("1/1:1:0", describe(rollup.find(em, 1, 2)));
+    }
+
+    @Test
+    public void loadsOnceUntilExpired() {
+        put(1L, 1, 1, 1, 0L);
+        rollup.find(em, 1, 2);
+        rollup.find(em, 1, 2);
+        assertEquals(1, fake.countExecuted(LOAD));
+
+        rollup = new GeneStrainRollup(-1L);
+        rollup.find(em, 1, 2);
+        rollup.find(em, 1, 2);
+        assertEquals(3, fake.countExecuted(LOAD));
+    }
+
+    @Test
+    public void updatesTheRollupOfChangedContexts() {
+        put(1L, 1, 1, 1, 2L);
+        put(2L, 1, 1, 1, 1L);
+        put(3L, 3, 1, 1, 0L);
+        rollup.find(em, 1, 2);
+
+        put(2L, 1, 1, 4, 0L);
+        rollup.update(em, Arrays.asList(2L));
+        assertEquals("1/1:4:2 3/1:1:0", describe(rollup.find(em, 1, 2)));
+        assertEquals(1, fake.countExecuted(LOAD));
+    }
+
+    @Test
+    public void onlyPatchesContextsInTheRollup() {
+        put(1L, 1, 1, 1, 0L);
+        rollup.find(em, 1, 2);
+
+        /* a new context is not in the rollup until it is reloaded */
+        put(2L, 1, 1, 4, 3L);
+        rollup.update(em, Arrays.asList(2L));
+        assertEquals("1/1:1:0", describe(rollup.find(em, 1, 2)));
+    }
+
+    @Test
+    public void updatesAreIgnoredUntilARollupIsLoaded() {
+        put(1L, 1, 1, 1, 0L);
+        rollup.update(em, Arrays.asList(1L));
+        rollup.update(em, Collections.<Long>emptyList());
+        assertTrue(fake.getExecuted().isEmpty());
+    }
+
+    @Test
+    public void updatesDuringALoadAreNotLost() {
+        put(1L, 1, 1, 1, 0L);
+        put(2L, 1, 1, 1, 0L);
+
+        /* the load has read the contexts when context 2 is changed */
+        duringLoad = new Runnable() {
+            @Override
+            public void run() {
+                put(2L, 1, 1, 4, 1L);
+                rollup.update(em, Arrays.asList(2L));
+            }
+        };
+        assertEquals("1/1:4:1", describe(rollup.find(em, 1, 2)));
+    }
+
+    @Test
+    public void concurrentRequestsLoadARollupOnce() throws InterruptedException {
+        put(1L, 1, 1, 1, 0L);
+        loadDelay = 50L;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean failed = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; ++i) {
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        if (rollup.find(em, 1, 2).size() != 1) {
+                            failed.set(true);
+                        }
+                    } catch (Exception e) {
+                        failed.set(true);
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertFalse(failed.get());
+        assertEquals(1, fake.countExecuted(LOAD));
+    }
+
+    @Test
+    public void checkDropsAnInconsistentRollup() {
+        put(1L, 1, 1, 1, 0L);
+        put(2L, 3, 1, 1, 0L);
+        named = Arrays.asList(
+                new GeneStrain(1, 1, 1, "Akt1", null, null, null, "B6N", null,
+                        (short) 1, 0L),
+                new GeneStrain(1, 3, 1, "Akt3", null, null, null, "B6N", null,
+                        (short) 1, 0L));
+        assertTrue(rollup.check(em, 1, 2).isEmpty());
+
+        /* changed by the crawler, without an update */
+        named = Arrays.asList(
+                new GeneStrain(1, 1, 1, "Akt1", null, null, null, "B6N", null,
+                        (short) 2, 0L));
+        List<GeneStrain> wrong = rollup.check(em, 1, 2);
+        assertEquals(2, wrong.size());
+        assertEquals(1, fake.countExecuted(LOAD));
+        rollup.find(em, 1, 2);
+        assertEquals(2, fake.countExecuted(LOAD));
+    }
+}
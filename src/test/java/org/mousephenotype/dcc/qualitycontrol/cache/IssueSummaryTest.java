@@ -0,0 +1,266 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.persistence.EntityManager;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.mousephenotype.dcc.qualitycontrol.FakeEntityManager;
+import org.mousephenotype.dcc.qualitycontrol.persistence.AnIssueQueries;
+
+/**
+ * @author agent <agent@local>
+ */
+public class IssueSummaryTest {
+
+    private static final int ALL = AnIssueQueries.FILTER_MASK;
+    private static final String LOAD = "d.cid = :cid";
+    private static final Integer[] CENTRE = {1, -1, -1, -1, -1, -1};
+
+    /* the issues in the database, keyed by issue id */
+    private final Map<Long, Object[]> issues = new ConcurrentHashMap<>();
+    /* if set, run by the load query before it returns its results */
+    private volatile Runnable duringLoad;
+    private volatile long loadDelay;
+    private FakeEntityManager fake;
+    private EntityManager em;
+    private IssueSummary summary;
+
+    private static Object[] issue(long id, int cid, int lid, int gid,
+            int status, long numMeasurements, Long lastUpdate,
+            String geneSymbol) {
+        return new Object[]{id, cid, lid, gid, 4, 5, 6, numMeasurements,
+            status, lastUpdate == null ? null : new Date(lastUpdate),
+            geneSymbol, "procedure", "parameter", "IMPC_ABC_001_001"};
+    }
+
+    private void put(Object[] issue) {
+        issues.put((Long) issue[0], issue);
+    }
+
+    @Before
+    public void setUp() {
+        fake = new FakeEntityManager(new FakeEntityManager.Results() {
+            @Override
+            public List<?> get(String jpql, Map<String, Object> parameters) {
+                List<Object[]> r = new ArrayList<>();
+                if (jpql.contains(LOAD)) {
+                    for (Object[] i : issues.values()) {
+                        if (i[1].equals(parameters.get("cid"))) {
+                            r.add(i);
+                        }
+                    }
+                    try {
+                        Thread.sleep(loadDelay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    Runnable hook = duringLoad;
+                    duringLoad = null;
+                    if (hook != null) {
+                        hook.run();
+                    }
+                } else {
+                    Object[] i = issues.get((Long) parameters.get("id"));
+                    if (i != null) {
+                        r.add(i);
+                    }
+                }
+                return r;
+            }
+        });
+        em = fake.getEntityManager();
+        summary = new IssueSummary(60000L);
+    }
+
+    private List<Long> find(Integer[] scope, int filter, String sort,
+            boolean ascending) {
+        List<Long> ids = new ArrayList<>();
+        for (IssueSummary.Row row : summary.find(em, scope, filter, sort, ascending)) {
+            ids.add(row.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void findsTheIssuesInScope() {
+        put(issue(1L, 1, 2, 3, 0, 1L, 1000L, "a"));
+        put(issue(2L, 1, 2, 4, 0, 1L, 2000L, "b"));
+        put(issue(3L, 1, 5, 3, 0, 1L, 3000L, "c"));
+        put(issue(4L, 9, 2, 3, 0, 1L, 4000L, "d"));
+        assertEquals(Arrays.asList(1L, 2L, 3L),
+                find(CENTRE, ALL, "lastUpdate", true));
+        assertEquals(Arrays.asList(1L, 2L),
+                find(new Integer[]{1, 2, -1, -1, -1, -1}, ALL, "lastUpdate", true));
+        assertEquals(Arrays.asList(1L),
+                find(new Integer[]{1, 2, 3, null, null, null}, ALL, "lastUpdate", true));
+        assertTrue(find(new Integer[]{-1, -1, -1, -1, -1, -1}, ALL, "lastUpdate", true).isEmpty());
+    }
+
+    @Test
+    public void sortsWithNullsFirstIgnoringCase() {
+        put(issue(1L, 1, 2, 3, 0, 1L, 3000L, "Akt2"));
+        put(issue(2L, 1, 2, 3, 0, 1L, null, "akt1"));
+        put(issue(3L, 1, 2, 3, 0, 1L, 1000L, null));
+        assertEquals(Arrays.asList(3L, 2L, 1L),
+                find(CENTRE, ALL, "geneSymbol", true));
+        assertEquals(Arrays.asList(1L, 2L, 3L),
+                find(CENTRE, ALL, "geneSymbol", false));
+        assertEquals(Arrays.asList(2L, 3L, 1L),
+                find(CENTRE, ALL, "lastUpdate", true));
+    }
+
+    @Test
+    public void tiesAreOrderedByIssueId() {
+        put(issue(2L, 1, 2, 3, 0, 1L, 1000L, "a"));
+        put(issue(1L, 1, 2, 3, 0, 1L, 1000L, "a"));
+        assertEquals(Arrays.asList(1L, 2L),
+                find(CENTRE, ALL, "geneSymbol", true));
+        assertEquals(Arrays.asList(2L, 1L),
+                find(CENTRE, ALL, "geneSymbol", false));
+    }
+
+    @Test
+    public void appliesTheFilter() {
+        put(issue(1L, 1, 2, 3, 0, 1L, 1000L, "a"));
+        put(issue(2L, 1, 2, 3, 1, 1L, 2000L, "b"));
+        put(issue(3L, 1, 2, 3, 1, 0L, 3000L, "c"));
+        assertEquals(Arrays.asList(2L),
+                find(CENTRE, ALL & ~AnIssueQueries.INCLUDE_NEW_ISSUES
+                        & ~AnIssueQueries.INCLUDE_NODATA_ISSUES,
+                        "lastUpdate", true));
+        assertEquals(Arrays.asList(1L, 2L),
+                find(CENTRE, ALL & ~AnIssueQueries.INCLUDE_NODATA_ISSUES,
+                        "lastUpdate", true));
+    }
+
+    @Test
+    public void loadsEachCentreOnce() {
+        put(issue(1L, 1, 2, 3, 0, 1L, 1000L, "a"));
+        put(issue(2L, 9, 2, 3, 0, 1L, 1000L, "a"));
+        find(CENTRE, ALL, "lastUpdate", true);
+        find(CENTRE, ALL, "geneSymbol", false);
+        assertEquals(1, fake.countExecuted(LOAD));
+        find(new Integer[]{9, -1, -1, -1, -1, -1}, ALL, "lastUpdate", true);
+        assertEquals(2, fake.countExecuted(LOAD));
+    }
+
+    @Test
+    public void reloadsExpiredCentres() {
+        summary = new IssueSummary(-1L);
+        put(issue(1L, 1, 2, 3, 0, 1L, 1000L, "a"));
+        find(CENTRE, ALL, "lastUpdate", true);
+        put(issue(2L, 1, 2, 3, 0, 1L, 2000L, "b"));
+        assertEquals(Arrays.asList(1L, 2L),
+                find(CENTRE, ALL, "lastUpdate", true));
+        assertEquals(2, fake.countExecuted(LOAD));
+    }
+
+    @Test
+    public void updatesChangedAndDeletedIssues() {
+        put(issue(1L, 1, 2, 3, 0, 1L, 1000L, "a"));
+        put(issue(2L, 1, 2, 3, 0, 1L, 2000L, "b"));
+        find(CENTRE, ALL, "lastUpdate", true);
+
+        put(issue(1L, 1, 2, 3, 0, 1L, 3000L, "a"));
+        summary.update(em, 1L);
+        assertEquals(Arrays.asList(2L, 1L),
+                find(CENTRE, ALL, "lastUpdate", true));
+
+        put(issue(3L, 1, 2, 3, 0, 1L, 4000L, "c"));
+        summary.update(em, 3L);
+        issues.remove(2L);
+        summary.update(em, 2L);
+        assertEquals(Arrays.asList(1L, 3L),
+                find(CENTRE, ALL, "lastUpdate", true));
+        assertEquals(1, fake.countExecuted(LOAD));
+    }
+
+    @Test
+    public void updatesAreIgnoredUntilASummaryIsLoaded() {
+        put(issue(1L, 1, 2, 3, 0, 1L, 1000L, "a"));
+        summary.update(em, 1L);
+        assertTrue(fake.getExecuted().isEmpty());
+    }
+
+    @Test
+    public void updatesDuringALoadAreNotLost() {
+        put(issue(1L, 1, 2, 3, 0, 1L, 1000L, "a"));
+        put(issue(2L, 1, 2, 3, 0, 1L, 2000L, "b"));
+
+        /* the load has read the issues when issue 1 is changed */
+        duringLoad = new Runnable() {
+            @Override
+            public void run() {
+                put(issue(1L, 1, 2, 3, 0, 1L, 3000L, "a"));
+                summary.update(em, 1L);
+            }
+        };
+        assertEquals(Arrays.asList(2L, 1L),
+                find(CENTRE, ALL, "lastUpdate", true));
+    }
+
+    @Test
+    public void concurrentRequestsLoadACentreOnce() throws InterruptedException {
+        put(issue(1L, 1, 2, 3, 0, 1L, 1000L, "a"));
+        loadDelay = 50L;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean failed = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; ++i) {
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        if (find(CENTRE, ALL, "lastUpdate", true).size() != 1) {
+                            failed.set(true);
+                        }
+                    } catch (Exception e) {
+                        failed.set(true);
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertFalse(failed.get());
+        assertEquals(1, fake.countExecuted(LOAD));
+    }
+
+    @Test
+    public void onlySummaryColumnsAreSortable() {
+        assertTrue(IssueSummary.isSortable("lastUpdate"));
+        assertTrue(IssueSummary.isSortable("qeid"));
+        assertFalse(IssueSummary.isSortable("priority"));
+        assertFalse(IssueSummary.isSortable(null));
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.persistence.EntityManager;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+import org.mousephenotype.dcc.qualitycontrol.FakeEntityManager;
+import org.mousephenotype.dcc.qualitycontrol.entities.KeyValueRecord;
+
+/**
+ * @author agent <agent@local>
+ */
+public class LineLevelDataTest {
+
+    private static final String FRAG = "%_FER_%";
+    private static final String LOAD = "ct.centreId = :centreId";
+
+    /* genotype, strain, procedure, parameter key, name, value and pipeline
+     * of the line-level parameters, in the order of the query */
+    private static final Object[][] ROWS = {
+        {10, 20, "IMPC_FER_001", "IMPC_FER_001_001", "Male fertility", "Fertile", 1},
+        {10, 20, "IMPC_FER_002", "IMPC_FER_001_001", "Male fertility", "Infertile", 2},
+        {11, 20, "IMPC_FER_001", "IMPC_FER_001_001", "Male fertility", "Fertile", 1},
+        {10, 20, "IMPC_FER_001", "IMPC_FER_019_001", "Female fertility", "Infertile", 1}
+    };
+
+    private volatile long loadDelay;
+    private FakeEntityManager fake;
+    private EntityManager em;
+    private LineLevelData data;
+
+    @Before
+    public void setUp() {
+        fake = new FakeEntityManager(new FakeEntityManager.Results() {
+            @Override
+            public List<?> get(String jpql, Map<String, Object> parameters) {
+                List<Object[]> r = new ArrayList<>();
+                if (!Integer.valueOf(1).equals(parameters.get("centreId"))
+                        || !FRAG.equals(parameters.get("procedureFrag"))) {
+                    return r;
+                }
+                Object pipelineId = parameters.get("pipelineId");
+                for (Object[] row : ROWS) {
+                    if (pipelineId == null || pipelineId.equals(row[6])) {
+                        r.add(row);
+                    }
+                }
+                try {
+                    Thread.sleep(loadDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return r;
+            }
+        });
+        em = fake.getEntityManager();
+        data = new LineLevelData(60000L);
+    }
+
+    private static String describe(List<KeyValueRecord> records) {
+        StringBuilder s = new StringBuilder();
+        for (KeyValueRecord r : records) {
+            s.append(r.getKey()).append('=').append(r.getValue()).append(' ');
+        }
+        return s.toString().trim();
+    }
+
+    @Test
+    public void groupsTheParametersByLineAndProcedure() {
+        assertEquals("IMPC_FER_001_001=Fertile IMPC_FER_019_001=Infertile",
+                describe(data.find(em, FRAG, 1, null, 10, 20, "IMPC_FER_001")));
+        assertEquals("IMPC_FER_001_001=Infertile",
+                describe(data.find(em, FRAG, 1, null, 10, 20, "IMPC_FER_002")));
+        assertEquals("IMPC_FER_001_001=Fertile",
+                describe(data.find(em, FRAG, 1, null, 11, 20, "IMPC_FER_001")));
+        assertTrue(data.find(em, FRAG, 1, null, 12, 20, "IMPC_FER_001").isEmpty());
+        assertTrue(data.find(em, FRAG, 2, null, 10, 20, "IMPC_FER_001").isEmpty());
+    }
+
+    @Test
+    public void anyProcedureHasTheFirstRecordOfEachParameter() {
+        assertEquals("IMPC_FER_001_001=Fertile IMPC_FER_019_001=Infertile",
+                describe(data.find(em, FRAG, 1, null, 10, 20, null)));
+    }
+
+    @Test
+    public void pipelineProjectionsOnlyHaveThatPipeline() {
+        assertEquals("IMPC_FER_001_001=Infertile",
+                describe(data.find(em, FRAG, 1, 2, 10, 20, "IMPC_FER_002")));
+        assertTrue(data.find(em, FRAG, 1, 2, 10, 20, "IMPC_FER_001").isEmpty());
+        assertTrue(data.find(em, FRAG, 1, 2, 10, 20, null).isEmpty());
+        assertEquals(1, fake.countExecuted("pl.pipelineId = :pipelineId"));
+    }
+
+    @Test
+    public void recordsCannotBeModified() {
+        List<KeyValueRecord> r = data.find(em, FRAG, 1, null, 10, 20, null);
+        try {
+            r.clear();
+            fail("line-level records were modified");
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+
+    @Test
+    public void loadsEachProjectionOnceAndParsesEachQueryOnce() {
+        data.find(em, FRAG, 1, null, 10, 20, "IMPC_FER_001");
+        data.find(em, FRAG, 1, null, 11, 20, null);
+        assertEquals(1, fake.countExecuted(LOAD));
+        data.find(em, FRAG, 2, null, 10, 20, null);
+        data.find(em, "%_VIA_%", 1, null, 10, 20, null);
+        assertEquals(3, fake.countExecuted(LOAD));
+        assertEquals(1, fake.getCreated().size());
+    }
+
+    @Test
+    public void reloadsExpiredProjections() {
+        data = new LineLevelData(-1L);
+        data.find(em, FRAG, 1, null, 10, 20, null);
+        data.find(em, FRAG, 1, null, 10, 20, null);
+        assertEquals(2, fake.countExecuted(LOAD));
+    }
+
+    @Test
+    public void concurrentRequestsLoadAProjectionOnce() throws InterruptedException {
+        loadDelay = 50L;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean failed = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; ++i) {
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        if (data.find(em, FRAG, 1, null, 10, 20, null).size() != 2) {
+                            failed.set(true);
+                        }
+                    } catch (Exception e) {
+                        failed.set(true);
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertFalse(failed.get());
+        assertEquals(1, fake.countExecuted(LOAD));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+/**
+ * @author agent <agent@local>
+ */
+public class LruCacheTest {
+
+    @Test
+    public void returnsWhatWasPut() {
+        LruCache<String, Integer> c = new LruCache<>(2);
+        c.put("a", 1);
+        c.put("b", 2);
+        assertEquals(Integer.valueOf(1), c.get("a"));
+        assertEquals(Integer.valueOf(2), c.get("b"));
+        assertNull(c.get("c"));
+    }
+
+    @Test
+    public void discardsLeastRecentlyUsed() {
+        LruCache<String, Integer> c = new LruCache<>(2);
+        c.put("a", 1);
+        c.put("b", 2);
+        c.get("a");
+        c.put("c", 3);
+        assertEquals(2, c.size());
+        assertEquals(Integer.valueOf(1), c.get("a"));
+        assertNull(c.get("b"));
+        assertEquals(Integer.valueOf(3), c.get("c"));
+    }
+
+    @Test
+    public void replacingDoesNotGrow() {
+        LruCache<String, Integer> c = new LruCache<>(2);
+        c.put("a", 1);
+        c.put("a", 2);
+        assertEquals(1, c.size());
+        assertEquals(Integer.valueOf(2), c.get("a"));
+    }
+
+    @Test
+    public void removesAndClears() {
+        LruCache<String, Integer> c = new LruCache<>(3);
+        c.put("a", 1);
+        c.put("b", 2);
+        c.remove("a");
+        assertNull(c.get("a"));
+        assertEquals(Integer.valueOf(2), c.get("b"));
+        c.clear();
+        assertEquals(0, c.size());
+        assertNull(c.get("b"));
+    }
+}
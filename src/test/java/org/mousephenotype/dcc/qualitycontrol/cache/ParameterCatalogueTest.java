@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.mousephenotype.dcc.qualitycontrol.entities.ParameterData;
+
+/**
+ * @author agent <agent@local>
+ */
+public class ParameterCatalogueTest {
+
+    private static List<ParameterData> getParameters() {
+        ParameterData a = new ParameterData();
+        a.setParameterId(1);
+        a.setOptions(new ArrayList<>(Arrays.asList("x", "y")));
+        ParameterData b = new ParameterData();
+        b.setParameterId(2);
+        List<ParameterData> parameters = new ArrayList<>();
+        parameters.add(a);
+        parameters.add(b);
+        return parameters;
+    }
+
+    @Test
+    public void returnsWhatWasPut() {
+        ParameterCatalogue c = new ParameterCatalogue(60000L);
+        List<ParameterData> parameters = getParameters();
+        c.put(7, parameters);
+        List<ParameterData> r = c.get(7);
+        assertEquals(2, r.size());
+        assertEquals(Integer.valueOf(1), r.get(0).getParameterId());
+        assertEquals(Integer.valueOf(2), r.get(1).getParameterId());
+        assertNull(c.get(8));
+
+        /* the entry does not change with the supplied list */
+        parameters.clear();
+        assertEquals(2, c.get(7).size());
+    }
+
+    @Test
+    public void entriesCannotBeModified() {
+        ParameterCatalogue c = new ParameterCatalogue(60000L);
+        c.put(7, getParameters());
+        List<ParameterData> r = c.get(7);
+        try {
+            r.clear();
+            fail("catalogued parameters were modified");
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            r.get(0).getOptions().add("z");
+            fail("catalogued options were modified");
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+
+    @Test
+    public void zeroTtlDisablesCaching() {
+        ParameterCatalogue c = new ParameterCatalogue(0L);
+        c.put(7, getParameters());
+        assertNull(c.get(7));
+    }
+
+    @Test
+    public void expiredEntriesAreNotReturned() throws InterruptedException {
+        ParameterCatalogue c = new ParameterCatalogue(1L);
+        c.put(7, getParameters());
+        Thread.sleep(10L);
+        assertNull(c.get(7));
+    }
+
+    @Test
+    public void clears() {
+        ParameterCatalogue c = new ParameterCatalogue(60000L);
+        c.put(7, getParameters());
+        c.clear();
+        assertNull(c.get(7));
+    }
+}
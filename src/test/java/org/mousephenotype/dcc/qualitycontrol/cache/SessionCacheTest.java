@@ -0,0 +1,86 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+/**
+ * @author agent <agent@local>
+ */
+public class SessionCacheTest {
+
+    @Test
+    public void remembersValidAndInvalidSessions() {
+        SessionCache c = new SessionCache(60000L, 60000L);
+        c.put("s1", 1, true);
+        c.put("s2", 1, false);
+        assertEquals(Boolean.TRUE, c.get("s1", 1));
+        assertEquals(Boolean.FALSE, c.get("s2", 1));
+        assertNull(c.get("s3", 1));
+    }
+
+    @Test
+    public void sessionsAreKeyedByUser() {
+        SessionCache c = new SessionCache(60000L, 60000L);
+        c.put("s1", 1, true);
+        assertNull(c.get("s1", 2));
+    }
+
+    @Test
+    public void zeroTtlDisablesCaching() {
+        SessionCache c = new SessionCache(60000L, 0L);
+        c.put("s1", 1, true);
+        c.put("s2", 1, false);
+        assertEquals(Boolean.TRUE, c.get("s1", 1));
+        assertNull(c.get("s2", 1));
+    }
+
+    @Test
+    public void expiredSessionsAreForgotten() throws InterruptedException {
+        SessionCache c = new SessionCache(1L, 1L);
+        c.put("s1", 1, true);
+        Thread.sleep(10L);
+        assertNull(c.get("s1", 1));
+    }
+
+    @Test
+    public void invalidatesSessions() {
+        SessionCache c = new SessionCache(60000L, 60000L);
+        c.put("s1", 1, true);
+        c.put("s2", 1, true);
+        c.invalidate("s1", 1);
+        assertNull(c.get("s1", 1));
+        assertEquals(Boolean.TRUE, c.get("s2", 1));
+    }
+
+    @Test
+    public void invalidatesOnlyTheSessionsOfTheUser() {
+        SessionCache c = new SessionCache(60000L, 60000L);
+        c.put("s1", 1, true);
+        c.put("s2", 1, true);
+        c.put("s3", 12, true);
+        c.put("s4", 2, true);
+        c.invalidateUser(1);
+        assertNull(c.get("s1", 1));
+        assertNull(c.get("s2", 1));
+        assertEquals(Boolean.TRUE, c.get("s3", 12));
+        assertEquals(Boolean.TRUE, c.get("s4", 2));
+        c.clear();
+        assertNull(c.get("s3", 12));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.cache;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * @author agent <agent@local>
+ */
+public class SpecimenNameIndexTest {
+
+    private static SpecimenNameIndex getIndex() {
+        SpecimenNameIndex index = new SpecimenNameIndex();
+        index.add(1L, "MAAA00123", 10L);
+        index.add(2L, "maaa00456", 11L);
+        index.add(3L, "B6N-0123", 12L);
+        index.add(4L, "xy", 13L);
+        return index;
+    }
+
+    private static Set<Object> find(SpecimenNameIndex index, String query) {
+        return new HashSet<>(index.find(query));
+    }
+
+    private static Set<Object> ids(Object... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+
+    @Test
+    public void findsNamesContainingTheQuery() {
+        SpecimenNameIndex index = getIndex();
+        assertEquals(ids(1L), find(index, "00123"));
+        assertEquals(ids(1L, 3L), find(index, "0123"));
+        assertEquals(ids(1L, 2L), find(index, "maaa"));
+        assertEquals(ids(3L), find(index, "B6N-0123"));
+    }
+
+    @Test
+    public void matchingIsCaseInsensitive() {
+        SpecimenNameIndex index = getIndex();
+        assertEquals(ids(1L, 2L), find(index, "MaAa00"));
+        assertEquals(ids(3L), find(index, "b6n"));
+    }
+
+    @Test
+    public void findsNothingForUnknownTrigrams() {
+        SpecimenNameIndex index = getIndex();
+        assertTrue(index.find("zzz").isEmpty());
+        assertTrue(index.find("00123x").isEmpty());
+    }
+
+    @Test
+    public void namesMustContainTheWholeQuery() {
+        /* every trigram of "abcdx" is in one of the names, but neither
+         * name contains all of it */
+        SpecimenNameIndex index = new SpecimenNameIndex();
+        index.add(1L, "abcd", 10L);
+        index.add(2L, "bcdx", 11L);
+        assertTrue(index.find("abcdx").isEmpty());
+        assertEquals(ids(1L, 2L), find(index, "bcd"));
+    }
+
+    @Test
+    public void shortQueriesAreMatchedAgainstEveryName() {
+        SpecimenNameIndex index = getIndex();
+        assertEquals(ids(4L), find(index, "XY"));
+        assertEquals(ids(1L, 3L), find(index, "12"));
+        assertEquals(ids(1L, 2L, 3L, 4L), find(index, ""));
+    }
+
+    @Test
+    public void ignoresSpecimensWithoutName() {
+        SpecimenNameIndex index = getIndex();
+        index.add(5L, null, 20L);
+        List<Object> r = index.find("");
+        assertFalse(r.contains(5L));
+        assertEquals(20L, index.getMaxOccurrenceId());
+    }
+
+    @Test
+    public void tracksTheNewestProcedureOccurrence() {
+        SpecimenNameIndex index = new SpecimenNameIndex();
+        assertEquals(-1L, index.getMaxOccurrenceId());
+        index.add(1L, "a", 12L);
+        index.add(2L, "b", 5);
+        index.add(3L, "c", null);
+        assertEquals(12L, index.getMaxOccurrenceId());
+    }
+
+    @Test
+    public void detectsWildcards() {
+        assertTrue(SpecimenNameIndex.hasWildcards("MA%"));
+        assertTrue(SpecimenNameIndex.hasWildcards("MA_1"));
+        assertFalse(SpecimenNameIndex.hasWildcards("MA-1"));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 agent <agent@local>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mousephenotype.dcc.qualitycontrol.persistence;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.mousephenotype.dcc.qualitycontrol.FakeEntityManager;
+import org.mousephenotype.dcc.qualitycontrol.persistence.ProcedureSpecimenQueries.Filter;
+import org.mousephenotype.dcc.qualitycontrol.persistence.ProcedureSpecimenQueries.Keyset;
+
+/**
+ * Checks the keyset paging conditions, which must agree with the order
+ * MySQL sorts nulls in (first in ascending order, last in descending).
+ *
+ * @author agent <agent@local>
+ */
+public class ProcedureSpecimenQueriesTest {
+
+    private static final String ASC_NEXT = "(pao.animalId > :aa OR (pao.animalId = :aa AND pao.procedureOccurrenceId > :ao))";
+    private static final String DESC_NEXT = "(pao.animalId < :aa OR (pao.animalId = :aa AND pao.procedureOccurrenceId < :ao))";
+
+    private FakeEntityManager fake;
+
+    @Before
+    public void setUp() {
+        fake = new FakeEntityManager(new FakeEntityManager.Results() {
+            @Override
+            public List<?> get(String jpql, Map<String, Object> parameters) {
+                return Collections.emptyList();
+            }
+        });
+    }
+
+    private String getSelectQuery(String sort, boolean ascending,
+            Filter filter, boolean unique, Keyset keyset) {
+        return FakeEntityManager.getJpql(ProcedureSpecimenQueries.createSelectQuery(
+                fake.getEntityManager(), sort, ascending, filter, unique, keyset));
+    }
+
+    @Test
+    public void afterNullAscendingIncludesAllValues() {
+        String q = getSelectQuery("sd", true, Filter.NONE, false, Keyset.AFTER_NULL);
+        assertTrue(q, q.contains(" AND (pao.startDate IS NOT NULL OR " + ASC_NEXT + ")"));
+        assertTrue(q, q.endsWith(" ORDER BY pao.startDate ASC, pao.animalId ASC, pao.procedureOccurrenceId ASC"));
+    }
+
+    @Test
+    public void afterNullDescendingOnlyIncludesNulls() {
+        String q = getSelectQuery("sd", false, Filter.NONE, false, Keyset.AFTER_NULL);
+        assertTrue(q, q.contains(" AND (pao.startDate IS NULL AND " + DESC_NEXT + ")"));
+        assertTrue(q, q.endsWith(" ORDER BY pao.startDate DESC, pao.animalId DESC, pao.procedureOccurrenceId DESC"));
+    }
+
+    @Test
+    public void afterValueAscendingExcludesNulls() {
+        String q = getSelectQuery("sd", true, Filter.NONE, false, Keyset.AFTER_VALUE);
+        assertTrue(q, q.contains(" AND (pao.startDate > :ak OR (pao.startDate = :ak AND " + ASC_NEXT + "))"));
+        assertFalse(q, q.contains("IS NULL"));
+    }
+
+    @Test
+    public void afterValueDescendingIncludesNulls() {
+        String q = getSelectQuery("sd", false, Filter.NONE, false, Keyset.AFTER_VALUE);
+        assertTrue(q, q.contains(" AND (pao.startDate < :ak OR pao.startDate IS NULL OR (pao.startDate = :ak AND " + DESC_NEXT + "))"));
+    }
+
+    @Test
+    public void keysetFollowsTheFilter() {
+        String q = getSelectQuery("n", true, Filter.ANIMAL_NAME, false, Keyset.AFTER_VALUE);
+        assertTrue(q, q.contains(" AND pao.animalName like :aname AND (ao.animalName > :ak"));
+    }
+
+    @Test
+    public void firstPageHasNoKeyset() {
+        String q = getSelectQuery("sd", true, Filter.NONE, false, Keyset.NONE);
+        assertFalse(q, q.contains(":aa"));
+        assertFalse(q, q.contains(":ak"));
+    }
+
+    @Test
+    public void uniqueSpecimensAreGroupedByAnimal() {
+        String q = getSelectQuery("sd", true, Filter.NONE, true, Keyset.NONE);
+        assertTrue(q, q.endsWith(" GROUP BY pao.animalId ORDER BY pao.startDate ASC"));
+    }
+
+    @Test
+    public void queriesAreParsedOnce() {
+        getSelectQuery("sd", true, Filter.NONE, false, Keyset.AFTER_NULL);
+        getSelectQuery("sd", true, Filter.NONE, false, Keyset.AFTER_NULL);
+        getSelectQuery("sd", false, Filter.NONE, false, Keyset.AFTER_NULL);
+        assertEquals(2, fake.getCreated().size());
+    }
+}